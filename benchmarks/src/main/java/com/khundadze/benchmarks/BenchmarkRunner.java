@@ -0,0 +1,55 @@
+package com.khundadze.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar: the regular JMH command line, plus the GC
+ * profiler (gc.alloc.rate.norm = bytes allocated per operation) and a JSON
+ * result file so runs can be diffed between commits.
+ *
+ * java -jar benchmarks/target/benchmarks.jar HashTable -p keyCount=1000,1000000
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+
+        // help and listings only print, like org.openjdk.jmh.Main
+        if (cli.shouldHelp()) {
+            cli.showHelp();
+            return;
+        }
+        if (cli.shouldList()) {
+            new Runner(cli).list();
+            return;
+        }
+        if (cli.shouldListWithParams()) {
+            new Runner(cli).listWithParams(cli);
+            return;
+        }
+        if (cli.shouldListProfilers()) {
+            cli.listProfilers();
+            return;
+        }
+        if (cli.shouldListResultFormats()) {
+            cli.listResultFormats();
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+
+        if (cli.getProfilers().stream().noneMatch(p -> p.getKlass().equals(GCProfiler.class.getName())))
+            options.addProfiler(GCProfiler.class);
+        if (!cli.getResultFormat().hasValue())
+            options.resultFormat(ResultFormatType.JSON);
+        if (!cli.getResult().hasValue())
+            options.result("jmh-result.json");
+
+        new Runner(options.build()).run();
+    }
+}
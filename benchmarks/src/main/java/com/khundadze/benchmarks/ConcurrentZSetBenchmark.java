@@ -0,0 +1,85 @@
+package com.khundadze.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.data_structures.ConcurrentZSet;
+
+/** A leaderboard shared by reader and writer threads */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx8g" })
+public class ConcurrentZSetBenchmark {
+
+    private static final int SCORES = 1 << 16;
+
+    @Param({ "1000", "1000000" })
+    public int size;
+
+    private ConcurrentZSet<String> zset;
+    private ByteString[] members;
+    private double[] scores;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        zset = new ConcurrentZSet<>();
+        members = new ByteString[size];
+        for (int i = 0; i < size; i++) {
+            members[i] = ByteString.of("member:" + i);
+            zset.add(members[i], random.nextInt(size), "value");
+        }
+        scores = new double[SCORES];
+        for (int i = 0; i < SCORES; i++)
+            scores[i] = random.nextInt(size);
+    }
+
+    /** Each thread walks its own cursor over the shared members and scores */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Object range(Cursor cursor) {
+        return zset.range(scores[cursor.next(SCORES)], ByteString.EMPTY, 0, 10);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Object updateScore(Cursor cursor) {
+        return zset.add(members[cursor.next(members.length)], scores[cursor.next(SCORES)], "value");
+    }
+
+    @Benchmark
+    @Group("writers")
+    @GroupThreads(4)
+    public Object concurrentUpdates(Cursor cursor) {
+        return zset.add(members[cursor.next(members.length)], scores[cursor.next(SCORES)], "value");
+    }
+}
@@ -0,0 +1,18 @@
+package com.khundadze.benchmarks;
+
+import java.util.SplittableRandom;
+
+/** How benchmark scores are spread over [0, range) */
+public enum Distribution {
+    UNIFORM,
+    // most scores crowd the low end, like a leaderboard where few players are far ahead
+    SKEWED;
+
+    public double next(SplittableRandom random, double range) {
+        double u = random.nextDouble();
+        return switch (this) {
+            case UNIFORM -> u * range;
+            case SKEWED -> Math.pow(u, 8) * range;
+        };
+    }
+}
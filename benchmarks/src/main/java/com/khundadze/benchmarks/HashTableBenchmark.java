@@ -0,0 +1,107 @@
+package com.khundadze.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.khundadze.data_structures.HashTable;
+
+/**
+ * Steady-state put/get/remove at a fixed table size. The default sizes fit
+ * in 4 GB; 50M keys need more, run them on their own with
+ * -p keyCount=50000000 -jvmArgsAppend -Xmx16g
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class HashTableBenchmark {
+
+    private static final int FRESH_KEYS = 1 << 16;
+
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    public int keyCount;
+
+    private HashTable<String, String> table;
+    private String[] keys; // present, in random order
+    private String[] fresh; // never present outside putRemove
+    private int cursor;
+    private int freshCursor;
+
+    @Setup
+    public void setUp() {
+        table = new HashTable<>();
+        keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "key:" + i;
+            table.put(keys[i], "value");
+        }
+        shuffle(keys, new SplittableRandom(42));
+
+        fresh = new String[FRESH_KEYS];
+        for (int i = 0; i < FRESH_KEYS; i++)
+            fresh[i] = "fresh:" + i;
+    }
+
+    private String nextKey() {
+        String key = keys[cursor];
+        cursor = cursor + 1 == keys.length ? 0 : cursor + 1;
+        return key;
+    }
+
+    private String nextFresh() {
+        return fresh[freshCursor++ & (FRESH_KEYS - 1)];
+    }
+
+    @Benchmark
+    public String getHit() {
+        return table.get(nextKey());
+    }
+
+    @Benchmark
+    public String getMiss() {
+        return table.get(nextFresh());
+    }
+
+    @Benchmark
+    public Object putExisting() {
+        return table.put(nextKey(), "value");
+    }
+
+    /** Insert of a new key, paired with its removal so the size stays put */
+    @Benchmark
+    public String putRemove() {
+        String key = nextFresh();
+        table.put(key, "value");
+        return table.remove(key);
+    }
+
+    @Benchmark
+    public Object removeReinsert() {
+        String key = nextKey();
+        table.remove(key);
+        return table.put(key, "value");
+    }
+
+    static void shuffle(Object[] array, SplittableRandom random) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Object tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.khundadze.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.khundadze.data_structures.HashTable;
+
+/** Cost of growing a table from the default capacity, against a presized one */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class HashTableResizeBenchmark {
+
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    public int keyCount;
+
+    private String[] keys;
+
+    @Setup
+    public void setUp() {
+        keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++)
+            keys[i] = "key:" + i;
+    }
+
+    @Benchmark
+    public HashTable<String, String> growFromDefault() {
+        HashTable<String, String> table = new HashTable<>();
+        for (String key : keys)
+            table.put(key, key);
+        return table;
+    }
+
+    @Benchmark
+    public HashTable<String, String> presized() {
+        HashTable<String, String> table = new HashTable<>((int) (keyCount / 0.75f) + 1);
+        for (String key : keys)
+            table.put(key, key);
+        return table;
+    }
+}
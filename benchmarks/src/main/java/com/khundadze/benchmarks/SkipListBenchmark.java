@@ -0,0 +1,93 @@
+package com.khundadze.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.khundadze.data_structures.SkipList;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx8g" })
+public class SkipListBenchmark {
+
+    private static final int PROBES = 1 << 16;
+
+    @Param({ "1000", "100000", "1000000" })
+    public int size;
+
+    @Param({ "UNIFORM", "SKEWED" })
+    public Distribution distribution;
+
+    private SkipList<Double, String> list;
+    private Double[] present; // keys in the list, random order
+    private Double[] probes; // same distribution, mostly absent
+    private int cursor;
+    private int probeCursor;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        list = new SkipList<>();
+        present = new Double[size];
+        for (int i = 0; i < size; i++) {
+            present[i] = distribution.next(random, size);
+            list.insert(present[i], "value");
+        }
+        HashTableBenchmark.shuffle(present, random);
+
+        probes = new Double[PROBES];
+        for (int i = 0; i < PROBES; i++)
+            probes[i] = distribution.next(random, size);
+    }
+
+    private Double nextPresent() {
+        Double key = present[cursor];
+        cursor = cursor + 1 == present.length ? 0 : cursor + 1;
+        return key;
+    }
+
+    private Double nextProbe() {
+        return probes[probeCursor++ & (PROBES - 1)];
+    }
+
+    @Benchmark
+    public Object get() {
+        return list.get(nextPresent());
+    }
+
+    @Benchmark
+    public Object ceiling() {
+        return list.ceiling(nextProbe());
+    }
+
+    /** Insert of a new key, paired with its removal so the size stays put */
+    @Benchmark
+    public Object insertRemove() {
+        Double key = nextProbe();
+        boolean existed = list.containsKey(key);
+        list.insert(key, "value");
+        return existed ? null : list.remove(key);
+    }
+
+    @Benchmark
+    public Object removeReinsert() {
+        Double key = nextPresent();
+        list.remove(key);
+        return list.insert(key, "value");
+    }
+}
@@ -0,0 +1,108 @@
+package com.khundadze.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.data_structures.ZSet;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx8g" })
+public class ZSetBenchmark {
+
+    private static final int SCORES = 1 << 16;
+
+    @Param({ "1000", "100000", "1000000" })
+    public int size;
+
+    @Param({ "UNIFORM", "SKEWED" })
+    public Distribution distribution;
+
+    private ZSet<String> zset;
+    private ByteString[] members; // random order
+    private double[] scores;
+    private ByteString[] fresh;
+    private int cursor;
+    private int scoreCursor;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        zset = new ZSet<>();
+        members = new ByteString[size];
+        for (int i = 0; i < size; i++) {
+            members[i] = ByteString.of("member:" + i);
+            zset.add(members[i], distribution.next(random, size), "value");
+        }
+        HashTableBenchmark.shuffle(members, random);
+
+        scores = new double[SCORES];
+        fresh = new ByteString[SCORES];
+        for (int i = 0; i < SCORES; i++) {
+            scores[i] = distribution.next(random, size);
+            fresh[i] = ByteString.of("fresh:" + i);
+        }
+    }
+
+    private ByteString nextMember() {
+        ByteString member = members[cursor];
+        cursor = cursor + 1 == members.length ? 0 : cursor + 1;
+        return member;
+    }
+
+    /** Existing member moves to a new score: skiplist remove + reinsert */
+    @Benchmark
+    public Object addUpdateScore() {
+        ByteString member = nextMember();
+        zset.add(member, scores[scoreCursor++ & (SCORES - 1)], "value");
+        return member;
+    }
+
+    /** Existing member, same score: only the value changes */
+    @Benchmark
+    public Object addSameScore() {
+        ByteString member = nextMember();
+        zset.add(member, zset.get(member).score, "value");
+        return member;
+    }
+
+    @Benchmark
+    public boolean addNewRemove() {
+        int i = scoreCursor++ & (SCORES - 1);
+        zset.add(fresh[i], scores[i], "value");
+        return zset.remove(fresh[i]);
+    }
+
+    @Benchmark
+    public Object get() {
+        return zset.get(nextMember());
+    }
+
+    /** query walks 'offset' level-0 links after the ceiling lookup */
+    @State(Scope.Benchmark)
+    public static class QueryOffset {
+        @Param({ "0", "10", "1000", "100000" })
+        public int offset;
+    }
+
+    @Benchmark
+    public Object query(QueryOffset q) {
+        return zset.query(scores[scoreCursor++ & (SCORES - 1)], ByteString.EMPTY, q.offset);
+    }
+}
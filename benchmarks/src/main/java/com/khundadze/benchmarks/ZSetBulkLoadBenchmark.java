@@ -0,0 +1,68 @@
+package com.khundadze.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.data_structures.ZSet;
+
+/** Loading a whole batch into an empty ZSet: one add() per member vs addAll() */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx8g" })
+public class ZSetBulkLoadBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int size;
+
+    /** SORTED: scores ascending in batch order, RANDOM: shuffled */
+    @Param({ "SORTED", "RANDOM" })
+    public String order;
+
+    private List<ZSet.Entry<String>> batch;
+
+    @Setup
+    public void setUp() {
+        ByteString[] members = new ByteString[size];
+        for (int i = 0; i < size; i++)
+            members[i] = ByteString.of("member:" + i);
+        if (order.equals("RANDOM"))
+            HashTableBenchmark.shuffle(members, new SplittableRandom(42));
+
+        batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            batch.add(new ZSet.Entry<>(members[i], i, "value"));
+    }
+
+    @Benchmark
+    public ZSet<String> addOneByOne() {
+        ZSet<String> zset = new ZSet<>();
+        for (ZSet.Entry<String> entry : batch)
+            zset.add(entry.name(), entry.score(), entry.value());
+        return zset;
+    }
+
+    @Benchmark
+    public ZSet<String> addAll() {
+        ZSet<String> zset = new ZSet<>();
+        zset.addAll(batch);
+        return zset;
+    }
+}
@@ -0,0 +1,34 @@
+package com.khundadze;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.khundadze.loadgen.LoadConfig;
+import com.khundadze.loadgen.LoadGenerator;
+import com.khundadze.loadgen.LoadReport;
+
+public class MainBenchmark {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadConfig config;
+        try {
+            config = LoadConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadConfig.USAGE);
+            System.exit(1);
+            return;
+        }
+
+        LoadReport report = new LoadGenerator(config).run();
+
+        if ("-".equals(config.jsonPath())) {
+            System.out.print(report.toJson());
+        } else {
+            System.out.print(report.toText());
+            if (config.jsonPath() != null)
+                Files.writeString(Path.of(config.jsonPath()), report.toJson(), StandardCharsets.UTF_8);
+        }
+    }
+}
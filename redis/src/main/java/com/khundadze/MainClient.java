@@ -1,13 +1,40 @@
 package com.khundadze;
 
+import java.io.IOException;
 import java.util.Scanner;
+import java.util.concurrent.CompletionException;
 
 import com.khundadze.server_client.NioClient;
 
 public class MainClient {
-    public static void main(String[] args) {
-        Scanner scanner = new Scanner(System.in);
-        new NioClient().start(5230, scanner);
-        scanner.close();
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 5230;
+
+        try (Scanner scanner = new Scanner(System.in);
+                NioClient client = new NioClient("localhost", port, true)) {
+
+            while (true) {
+                // 1️⃣ Read user input
+                System.out.print("> ");
+                if (!scanner.hasNextLine())
+                    break;
+                String message = scanner.nextLine().trim();
+                if (message.equalsIgnoreCase("exit"))
+                    break;
+                if (message.isEmpty())
+                    continue;
+
+                // 2️⃣ Send to server (GETs go through the near-cache) and print the reply
+                String[] parts = message.split(" +");
+                try {
+                    Object reply = parts.length == 2 && parts[0].equalsIgnoreCase("GET")
+                            ? client.get(parts[1]).join()
+                            : client.call((Object[]) parts).join();
+                    System.out.println("Server: " + (reply == null ? "(nil)" : reply));
+                } catch (CompletionException e) {
+                    System.out.println("Server: (error) " + e.getCause().getMessage());
+                }
+            }
+        }
     }
 }
@@ -1,9 +1,50 @@
 package com.khundadze;
 
+import com.khundadze.cluster.ClusterNode;
+import com.khundadze.cluster.ClusterState;
+import com.khundadze.lazyfree.LazyFree;
 import com.khundadze.server_client.NioServer;
+import com.khundadze.stats.HotKeys;
+import com.khundadze.stats.SlowLog;
 
 public class MainServer {
+    /**
+     * Usage: MainServer [port] [--cluster layout] [--metrics-port port]
+     *                   [--slowlog-slower-than usec] [--slowlog-max-len n]
+     *                   [--lazyfree-threshold n] [--lazyfree-lazy-server-del yes|no]
+     *                   [--hotkeys-sample-rate n]
+     * e.g. MainServer 7000 --cluster 127.0.0.1:7000=0-8191,127.0.0.1:7001=8192-16383
+     */
     public static void main(String[] args) {
-        new NioServer().start(5230);
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 5230;
+
+        String layout = null;
+        int metricsPort = 0;
+        long slowerThan = 10_000;
+        int slowlogLength = 128;
+        int lazyfreeThreshold = LazyFree.DEFAULT_THRESHOLD;
+        boolean lazyServerDel = false;
+        int hotkeysSampleRate = HotKeys.DEFAULT_SAMPLE_RATE;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--cluster" -> layout = args[i + 1];
+                case "--metrics-port" -> metricsPort = Integer.parseInt(args[i + 1]);
+                case "--slowlog-slower-than" -> slowerThan = Long.parseLong(args[i + 1]);
+                case "--slowlog-max-len" -> slowlogLength = Integer.parseInt(args[i + 1]);
+                case "--lazyfree-threshold" -> lazyfreeThreshold = Integer.parseInt(args[i + 1]);
+                case "--lazyfree-lazy-server-del" -> lazyServerDel = args[i + 1].equalsIgnoreCase("yes");
+                case "--hotkeys-sample-rate" -> hotkeysSampleRate = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        ClusterState cluster = null;
+        if (layout != null) {
+            cluster = new ClusterState(new ClusterNode("127.0.0.1", port));
+            cluster.applyLayout(layout);
+        }
+        new NioServer(cluster, new SlowLog(slowerThan, slowlogLength), new LazyFree(lazyfreeThreshold, lazyServerDel),
+                new HotKeys(HotKeys.DEFAULT_CAPACITY, hotkeysSampleRate))
+                .start(port, metricsPort);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+package com.khundadze.cluster;
+
+public record ClusterNode(
+        String host,
+        int port) {
+
+    /** Parses "host:port" */
+    public static ClusterNode parse(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0 || colon == address.length() - 1)
+            throw new IllegalArgumentException("Invalid node address: " + address);
+        return new ClusterNode(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    @Override
+    public String toString() {
+        return host + ":" + port;
+    }
+}
@@ -0,0 +1,168 @@
+package com.khundadze.cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import com.khundadze.data_structures.ByteString;
+
+/** Slot ownership of this node's view of the cluster, plus a slot -> keys index for migration */
+public class ClusterState {
+
+    private final ClusterNode self;
+    private final ClusterNode[] owners = new ClusterNode[HashSlot.SLOT_COUNT];
+    private final ClusterNode[] migrating = new ClusterNode[HashSlot.SLOT_COUNT];
+    private final ClusterNode[] importing = new ClusterNode[HashSlot.SLOT_COUNT];
+
+    // allocated lazily, most slots of a node never hold keys of other nodes
+    private final HashSet<ByteString>[] slotKeys;
+
+    @SuppressWarnings("unchecked")
+    public ClusterState(ClusterNode self) {
+        this.self = self;
+        this.slotKeys = new HashSet[HashSlot.SLOT_COUNT];
+    }
+
+    public ClusterNode self() {
+        return self;
+    }
+
+    /**
+     * Applies a layout like "127.0.0.1:7000=0-5460,127.0.0.1:7001=5461-16383".
+     * Every node of a local test cluster can be started with the same string.
+     */
+    public void applyLayout(String layout) {
+        for (String entry : layout.split(",")) {
+            String[] nodeAndRange = entry.trim().split("=");
+            if (nodeAndRange.length != 2)
+                throw new IllegalArgumentException("Invalid layout entry: " + entry);
+            ClusterNode node = ClusterNode.parse(nodeAndRange[0]);
+            String[] range = nodeAndRange[1].split("-");
+            int from = Integer.parseInt(range[0]);
+            int to = range.length > 1 ? Integer.parseInt(range[1]) : from;
+            assign(from, to, node);
+        }
+    }
+
+    public void assign(int from, int to, ClusterNode node) {
+        checkSlot(from);
+        checkSlot(to);
+        for (int slot = from; slot <= to; slot++) {
+            owners[slot] = node;
+            migrating[slot] = null;
+            importing[slot] = null;
+        }
+    }
+
+    public ClusterNode ownerOf(int slot) {
+        return owners[slot];
+    }
+
+    public ClusterNode migratingTo(int slot) {
+        return migrating[slot];
+    }
+
+    public ClusterNode importingFrom(int slot) {
+        return importing[slot];
+    }
+
+    public void setMigrating(int slot, ClusterNode target) {
+        checkSlot(slot);
+        if (!self.equals(owners[slot]))
+            throw new IllegalStateException("I'm not the owner of hash slot " + slot);
+        migrating[slot] = target;
+    }
+
+    public void setImporting(int slot, ClusterNode source) {
+        checkSlot(slot);
+        if (self.equals(owners[slot]))
+            throw new IllegalStateException("I'm already the owner of hash slot " + slot);
+        importing[slot] = source;
+    }
+
+    /**
+     * Decides whether this node may serve a command on the given key.
+     * Returns null when it may, otherwise the MOVED/ASK/CLUSTERDOWN error to send.
+     */
+    public String route(ByteString key, boolean existsLocally, boolean asking) {
+        int slot = HashSlot.slotOf(key);
+        ClusterNode owner = owners[slot];
+
+        if (owner == null)
+            return "CLUSTERDOWN Hash slot not served";
+
+        if (owner.equals(self)) {
+            // keys already moved away are answered by the migration target
+            if (migrating[slot] != null && !existsLocally)
+                return "ASK " + slot + " " + migrating[slot];
+            return null;
+        }
+
+        if (importing[slot] != null && asking)
+            return null;
+
+        return "MOVED " + slot + " " + owner;
+    }
+
+    // ------------------------ slot -> keys index ------------------------
+
+    public void keyAdded(ByteString key) {
+        int slot = HashSlot.slotOf(key);
+        if (slotKeys[slot] == null)
+            slotKeys[slot] = new HashSet<>();
+        slotKeys[slot].add(key);
+    }
+
+    public void keyRemoved(ByteString key) {
+        int slot = HashSlot.slotOf(key);
+        HashSet<ByteString> keys = slotKeys[slot];
+        if (keys == null)
+            return;
+        keys.remove(key);
+        if (keys.isEmpty())
+            slotKeys[slot] = null;
+    }
+
+    /** FLUSHALL */
+    public void clearKeys() {
+        Arrays.fill(slotKeys, null);
+    }
+
+    public int countKeysInSlot(int slot) {
+        checkSlot(slot);
+        return slotKeys[slot] == null ? 0 : slotKeys[slot].size();
+    }
+
+    public List<ByteString> getKeysInSlot(int slot, int count) {
+        checkSlot(slot);
+        List<ByteString> keys = new ArrayList<>(Math.min(count, countKeysInSlot(slot)));
+        if (slotKeys[slot] == null)
+            return keys;
+        for (ByteString key : slotKeys[slot]) {
+            if (keys.size() == count)
+                break;
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    /** CLUSTER SLOTS style listing: "from-to host:port" per contiguous range */
+    public List<String> describeSlots() {
+        List<String> ranges = new ArrayList<>();
+        int start = 0;
+        for (int slot = 1; slot <= HashSlot.SLOT_COUNT; slot++) {
+            if (slot == HashSlot.SLOT_COUNT || owners[slot] == null || !owners[slot].equals(owners[start])) {
+                if (owners[start] != null)
+                    ranges.add(start + "-" + (slot - 1) + " " + owners[start]);
+                start = slot;
+            }
+        }
+        return ranges;
+    }
+
+    private static void checkSlot(int slot) {
+        if (slot < 0 || slot >= HashSlot.SLOT_COUNT)
+            throw new IllegalArgumentException("Invalid or out of range slot: " + slot);
+    }
+}
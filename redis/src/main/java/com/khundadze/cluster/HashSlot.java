@@ -0,0 +1,84 @@
+package com.khundadze.cluster;
+
+import java.nio.charset.StandardCharsets;
+
+import com.khundadze.data_structures.ByteString;
+
+/** Maps keys to one of 16384 hash slots (CRC16/XMODEM, like Redis Cluster) */
+public final class HashSlot {
+
+    public static final int SLOT_COUNT = 16384;
+
+    private static final int[] CRC16_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC16_TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    private HashSlot() {
+    }
+
+    public static int crc16(byte[] data, int from, int to) {
+        int crc = 0;
+        for (int i = from; i < to; i++) {
+            crc = ((crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ data[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    public static int crc16(ByteString data, int from, int to) {
+        int crc = 0;
+        for (int i = from; i < to; i++) {
+            crc = ((crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ data.byteAt(i)) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    /** Same rule as slotOf(byte[]), straight off the key's bytes */
+    public static int slotOf(ByteString key) {
+        int from = 0;
+        int to = key.length();
+        int open = key.indexOf((byte) '{', 0);
+        if (open >= 0) {
+            int close = key.indexOf((byte) '}', open + 1);
+            if (close > open + 1) {
+                from = open + 1;
+                to = close;
+            }
+        }
+        return crc16(key, from, to) & (SLOT_COUNT - 1);
+    }
+
+    public static int slotOf(String key) {
+        return slotOf(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Only the part inside the first non-empty {...} is hashed, so related keys can share a slot */
+    public static int slotOf(byte[] key) {
+        int from = 0;
+        int to = key.length;
+
+        for (int open = 0; open < key.length; open++) {
+            if (key[open] != '{')
+                continue;
+            for (int close = open + 1; close < key.length; close++) {
+                if (key[close] == '}') {
+                    if (close > open + 1) {
+                        from = open + 1;
+                        to = close;
+                    }
+                    break;
+                }
+            }
+            break;
+        }
+
+        return crc16(key, from, to) & (SLOT_COUNT - 1);
+    }
+}
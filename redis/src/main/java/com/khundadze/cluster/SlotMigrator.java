@@ -0,0 +1,259 @@
+package com.khundadze.cluster;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.data_structures.RedisSet;
+import com.khundadze.data_structures.ZSet;
+import com.khundadze.server_client.NioClient;
+
+/**
+ * Moves the keys of MIGRATING slots to their target node, one small batch at
+ * a time, so clients keep being served while a slot is in flight. The event
+ * loop never waits on the target: step() pipelines a batch and returns, and
+ * a later step() picks up the replies once they arrived (wakeup is run when
+ * they do). Two nodes migrating slots to each other therefore keep serving
+ * each other's RESTOREs; a target that stays silent for longer than the
+ * timeout aborts the migration. Links to targets are connected on their
+ * own I/O thread, so an unreachable target doesn't stall the loop either.
+ *
+ * Keys written while their batch is in flight stay here and go out again
+ * with a later batch; keys deleted meanwhile are deleted on the target too.
+ */
+public class SlotMigrator {
+
+    private static final Logger logger = Logger.getLogger(SlotMigrator.class.getName());
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5_000;
+
+    private final ClusterState cluster;
+    private final int batchSize;
+    private final long timeoutMillis;
+    private final Consumer<ByteString> remover;
+    private final Runnable wakeup;
+    private final ArrayDeque<Integer> pending = new ArrayDeque<>();
+    private final HashMap<ClusterNode, NioClient> links = new HashMap<>();
+
+    // the batch or SETSLOT sent for the head of pending, null when nothing is outstanding
+    private CompletableFuture<?> inFlight;
+    private ClusterNode inFlightTarget;
+    private boolean finalizing;
+    private final HashSet<ByteString> inFlightKeys = new HashSet<>();
+    private final HashSet<ByteString> dirty = new HashSet<>(); // written while in flight
+    private final List<ByteString> stale = new ArrayList<>(); // deleted here, still on the target
+
+    /**
+     * remover deletes a migrated key the way DEL does (WATCH, tracking and the
+     * slot index); wakeup interrupts the event loop's select once replies are in
+     */
+    public SlotMigrator(ClusterState cluster, Consumer<ByteString> remover, Runnable wakeup) {
+        this(cluster, DEFAULT_BATCH_SIZE, DEFAULT_TIMEOUT_MILLIS, remover, wakeup);
+    }
+
+    public SlotMigrator(ClusterState cluster, int batchSize, long timeoutMillis, Consumer<ByteString> remover,
+            Runnable wakeup) {
+        this.cluster = cluster;
+        this.batchSize = batchSize;
+        this.timeoutMillis = timeoutMillis;
+        this.remover = remover;
+        this.wakeup = wakeup;
+    }
+
+    public void enqueue(int slot) {
+        if (!pending.contains(slot))
+            pending.add(slot);
+    }
+
+    /** True when step() can make progress right now, false while waiting on the target */
+    public boolean hasPendingWork() {
+        return !pending.isEmpty() && (inFlight == null || inFlight.isDone());
+    }
+
+    /** Every write goes through here, so a key of the batch in flight isn't deleted with a stale copy sent */
+    public void keyModified(ByteString key) {
+        if (inFlightKeys.contains(key))
+            dirty.add(key);
+    }
+
+    /** FLUSHALL: every key in flight is gone */
+    public void flushed() {
+        dirty.addAll(inFlightKeys);
+    }
+
+    /** Completes the outstanding batch if its replies are in, otherwise sends the next one */
+    public void step(ZSet<Object> store) {
+        Integer slot = pending.peek();
+        if (slot == null)
+            return;
+        if (inFlight != null) {
+            if (inFlight.isDone())
+                complete(slot, store);
+            return;
+        }
+
+        ClusterNode target = cluster.migratingTo(slot);
+        if (target == null) { // cancelled with SETSLOT STABLE / NODE
+            stale.clear();
+            pending.poll();
+            return;
+        }
+
+        try {
+            NioClient link = link(target);
+
+            // the whole batch is pipelined, one round trip per step
+            List<ByteString> batch = cluster.getKeysInSlot(slot, batchSize);
+            if (batch.isEmpty() && stale.isEmpty()) {
+                finalizing = true;
+                send(target, link.call("CLUSTER", "SETSLOT", slot, "NODE", target));
+                return;
+            }
+            List<CompletableFuture<?>> replies = new ArrayList<>(batch.size() + 2);
+            if (!stale.isEmpty()) { // one DEL, the keys all hash to this slot
+                Object[] del = new Object[1 + stale.size()];
+                del[0] = "DEL";
+                for (int i = 0; i < stale.size(); i++)
+                    del[1 + i] = stale.get(i);
+                replies.add(link.call("ASKING"));
+                replies.add(link.call(del));
+                stale.clear();
+            }
+            for (ByteString key : batch) {
+                replies.add(link.call(restoreCommand(store.get(key))));
+                inFlightKeys.add(key);
+            }
+            send(target, CompletableFuture.allOf(replies.toArray(new CompletableFuture<?>[0])));
+        } catch (IOException e) {
+            abort(slot, target, e);
+        }
+    }
+
+    // ------------------------ Helper methods ------------------------
+
+    private void send(ClusterNode target, CompletableFuture<?> replies) {
+        inFlightTarget = target;
+        inFlight = replies.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        inFlight.whenComplete((result, error) -> wakeup.run());
+    }
+
+    /** On the event loop, once inFlight is done */
+    private void complete(int slot, ZSet<Object> store) {
+        ClusterNode target = inFlightTarget;
+        try {
+            inFlight.join();
+        } catch (CompletionException | CancellationException e) {
+            abort(slot, target, e);
+            return;
+        }
+        inFlight = null;
+        inFlightTarget = null;
+        boolean cancelled = !target.equals(cluster.migratingTo(slot)); // SETSLOT STABLE / NODE meanwhile
+
+        if (finalizing) {
+            finalizing = false;
+            if (!cancelled) {
+                cluster.assign(slot, slot, target);
+                logger.log(Level.INFO, "Slot {0} migrated to {1}", new Object[] { slot, target });
+            }
+            pending.poll();
+            if (!hasPendingMigrationsTo(target))
+                closeLink(target);
+            return;
+        }
+
+        List<ByteString> restored = new ArrayList<>(inFlightKeys);
+        inFlightKeys.clear();
+        if (!cancelled) {
+            for (ByteString key : restored) {
+                if (!dirty.contains(key))
+                    remover.accept(key);
+                else if (store.get(key) == null)
+                    stale.add(key);
+                // else: written meanwhile, resent with a later batch
+            }
+        } // else the copies on the target are harmless, ours stay
+        dirty.clear();
+    }
+
+    /** The slot stays MIGRATING, so moved keys keep being answered with ASK */
+    private void abort(int slot, ClusterNode target, Exception e) {
+        logger.log(Level.SEVERE, "Migration of slot " + slot + " to " + target + " failed", e);
+        inFlight = null;
+        inFlightTarget = null;
+        finalizing = false;
+        inFlightKeys.clear();
+        dirty.clear();
+        stale.clear();
+        pending.poll();
+        closeLink(target);
+    }
+
+    /**
+     * RESTORE name value score, RESTORE name "" score SET member ... for set
+     * keys, or RESTORE name "" score ZSET member score ... for sorted sets
+     */
+    private static Object[] restoreCommand(ZSet.ZNode<Object> node) {
+        if (node.value instanceof ZSet<?> zset) {
+            List<? extends ZSet.ZNode<?>> members = zset.range(Double.NEGATIVE_INFINITY, ByteString.EMPTY, 0, zset.size());
+            Object[] command = new Object[5 + 2 * members.size()];
+            command[0] = "RESTORE";
+            command[1] = node.name;
+            command[2] = "";
+            command[3] = node.score;
+            command[4] = "ZSET";
+            for (int i = 0; i < members.size(); i++) {
+                command[5 + 2 * i] = members.get(i).name;
+                command[6 + 2 * i] = members.get(i).score;
+            }
+            return command;
+        }
+        if (!(node.value instanceof RedisSet set))
+            return new Object[] { "RESTORE", node.name, node.value != null ? node.value : ByteString.EMPTY, node.score };
+        List<ByteString> members = set.members();
+        Object[] command = new Object[5 + members.size()];
+        command[0] = "RESTORE";
+        command[1] = node.name;
+        command[2] = "";
+        command[3] = node.score;
+        command[4] = "SET";
+        for (int i = 0; i < members.size(); i++)
+            command[5 + i] = members.get(i);
+        return command;
+    }
+
+    private boolean hasPendingMigrationsTo(ClusterNode target) {
+        for (int slot : pending) {
+            if (target.equals(cluster.migratingTo(slot)))
+                return true;
+        }
+        return false;
+    }
+
+    private NioClient link(ClusterNode target) throws IOException {
+        NioClient link = links.get(target);
+        if (link == null) {
+            link = NioClient.connectInBackground(target.host(), target.port()); // never blocks the loop
+            links.put(target, link);
+        }
+        return link;
+    }
+
+    private void closeLink(ClusterNode target) {
+        NioClient link = links.remove(target);
+        if (link != null)
+            link.close();
+    }
+}
@@ -0,0 +1,134 @@
+package com.khundadze.data_structures;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Immutable, binary-safe string of bytes: the type of every key and string
+ * value the server stores. Built once from the bytes of the request and
+ * written back out as is, so nothing on the command path decodes UTF-8.
+ * The hash is computed on first use and cached, like String's.
+ * Ordering is unsigned byte-wise (memcmp), the same as Redis.
+ */
+public final class ByteString implements Comparable<ByteString> {
+
+    public static final ByteString EMPTY = new ByteString(new byte[0]);
+
+    private final byte[] data;
+    private int hash; // 0 until computed
+    private boolean hashIsZero; // the computed hash really is 0
+
+    private ByteString(byte[] data) {
+        this.data = data;
+    }
+
+    /** Copies length bytes starting at offset; the source may be reused afterwards */
+    public static ByteString copyOf(byte[] src, int offset, int length) {
+        return length == 0 ? EMPTY : new ByteString(Arrays.copyOfRange(src, offset, offset + length));
+    }
+
+    public static ByteString copyOf(byte[] src) {
+        return copyOf(src, 0, src.length);
+    }
+
+    public static ByteString of(String s) {
+        return s.isEmpty() ? EMPTY : new ByteString(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Decimal digits of value, e.g. an intset member turned back into a string */
+    public static ByteString of(long value) {
+        return new ByteString(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public int length() {
+        return data.length;
+    }
+
+    public boolean isEmpty() {
+        return data.length == 0;
+    }
+
+    public byte byteAt(int index) {
+        return data[index];
+    }
+
+    public int indexOf(byte b, int from) {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == b)
+                return i;
+        }
+        return -1;
+    }
+
+    public boolean startsWith(ByteString prefix) {
+        return prefix.data.length <= data.length
+                && Arrays.equals(data, 0, prefix.data.length, prefix.data, 0, prefix.data.length);
+    }
+
+    /** ASCII letters only, other bytes are left alone; returns this when nothing changes */
+    public ByteString toUpperCaseAscii() {
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] >= 'a' && data[i] <= 'z') {
+                byte[] upper = data.clone();
+                for (int j = i; j < upper.length; j++) {
+                    if (upper[j] >= 'a' && upper[j] <= 'z')
+                        upper[j] -= 'a' - 'A';
+                }
+                return new ByteString(upper);
+            }
+        }
+        return this;
+    }
+
+    /** A copy, the internal array never leaves this class */
+    public byte[] toByteArray() {
+        return data.clone();
+    }
+
+    public void writeTo(ByteArrayOutputStream out) {
+        out.write(data, 0, data.length);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0 && !hashIsZero) {
+            for (byte b : data)
+                h = 31 * h + b;
+            if (h == 0)
+                hashIsZero = true;
+            else
+                hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof ByteString other) || other.data.length != data.length)
+            return false;
+        // cached hashes reject most mismatches without touching the bytes
+        if (hash != 0 && other.hash != 0 && hash != other.hash)
+            return false;
+        return Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public int compareTo(ByteString other) {
+        return Arrays.compareUnsigned(data, other.data);
+    }
+
+    /** UTF-8 decoded, for logs and admin replies; invalid sequences become U+FFFD */
+    @Override
+    public String toString() {
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /** Decodes only the first maxBytes bytes (or all of them), like toString() */
+    public String toString(int maxBytes) {
+        return new String(data, 0, Math.min(maxBytes, data.length), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,237 @@
+package com.khundadze.data_structures;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+/**
+ * Lock-free SkipList (Herlihy & Shavit, after Fraser): forward pointers are
+ * CAS'ed, and a node is deleted by first marking its own pointers, top level
+ * down, then unlinking it. Writers help unlink marked nodes they run into;
+ * get, ceiling and successor never write or retry, so readers are wait-free.
+ */
+public class ConcurrentSkipList<K extends Comparable<K>, V> {
+
+    public static class Node<K, V> {
+        final public K key;
+        public volatile V value;
+        final AtomicMarkableReference<Node<K, V>>[] next; // mark = this node is deleted at that level
+
+        @SuppressWarnings("unchecked")
+        Node(K key, V value, int level) {
+            this.key = key;
+            this.value = value;
+            this.next = (AtomicMarkableReference<Node<K, V>>[]) new AtomicMarkableReference<?>[level + 1];
+            for (int i = 0; i <= level; i++)
+                next[i] = new AtomicMarkableReference<>(null, false);
+        }
+
+        int topLevel() {
+            return next.length - 1;
+        }
+
+        @Override
+        public String toString() {
+            return key + ":" + value;
+        }
+    }
+
+    private static final int MAX_LEVEL = 16;
+
+    // sentinels: head is below every key, tail above; neither carries a key
+    private final Node<K, V> head = new Node<>(null, null, MAX_LEVEL);
+    private final Node<K, V> tail = new Node<>(null, null, MAX_LEVEL);
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    public ConcurrentSkipList() {
+        for (int i = 0; i <= MAX_LEVEL; i++)
+            head.next[i].set(tail, false);
+    }
+
+    private int randomLevel() {
+        int lvl = 0;
+        while (lvl < MAX_LEVEL && ThreadLocalRandom.current().nextBoolean()) {
+            lvl++;
+        }
+        return lvl;
+    }
+
+    /** Exact when quiescent, a recent value while writers are running */
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /** Insert or replace value */
+    public Node<K, V> insert(K key, V value) {
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] preds = (Node<K, V>[]) new Node<?, ?>[MAX_LEVEL + 1];
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] succs = (Node<K, V>[]) new Node<?, ?>[MAX_LEVEL + 1];
+        int topLevel = randomLevel();
+
+        while (true) {
+            if (find(key, preds, succs)) {
+                succs[0].value = value;
+                return succs[0];
+            }
+
+            Node<K, V> newNode = new Node<>(key, value, topLevel);
+            for (int i = 0; i <= topLevel; i++)
+                newNode.next[i].set(succs[i], false);
+
+            // linking the bottom level is what makes the key present
+            if (!preds[0].next[0].compareAndSet(succs[0], newNode, false, false))
+                continue;
+            size.incrementAndGet();
+
+            // upper levels are only shortcuts, link them as far as possible
+            for (int i = 1; i <= topLevel; i++) {
+                while (true) {
+                    Node<K, V> succ = succs[i];
+                    Node<K, V> current = newNode.next[i].getReference();
+                    if (current != succ && !newNode.next[i].compareAndSet(current, succ, false, false))
+                        return newNode; // removed meanwhile, stop raising it
+                    if (preds[i].next[i].compareAndSet(succ, newNode, false, false))
+                        break;
+                    find(key, preds, succs);
+                }
+            }
+            return newNode;
+        }
+    }
+
+    /** Returns the removed node, or null if the key wasn't present (or another thread removed it first) */
+    public Node<K, V> remove(K key) {
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] preds = (Node<K, V>[]) new Node<?, ?>[MAX_LEVEL + 1];
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] succs = (Node<K, V>[]) new Node<?, ?>[MAX_LEVEL + 1];
+        boolean[] marked = { false };
+
+        if (!find(key, preds, succs))
+            return null;
+        Node<K, V> victim = succs[0];
+
+        // mark the shortcut levels first, top down
+        for (int i = victim.topLevel(); i >= 1; i--) {
+            Node<K, V> succ = victim.next[i].get(marked);
+            while (!marked[0]) {
+                victim.next[i].compareAndSet(succ, succ, false, true);
+                succ = victim.next[i].get(marked);
+            }
+        }
+
+        // whoever marks the bottom level owns the removal
+        Node<K, V> succ = victim.next[0].get(marked);
+        while (true) {
+            boolean markedByMe = victim.next[0].compareAndSet(succ, succ, false, true);
+            succ = victim.next[0].get(marked);
+            if (markedByMe) {
+                size.decrementAndGet();
+                find(key, preds, succs); // physically unlinks it
+                return victim;
+            }
+            if (marked[0])
+                return null;
+        }
+    }
+
+    public Node<K, V> get(K key) {
+        Node<K, V> n = ceiling(key);
+        return (n != null && n.key.equals(key)) ? n : null;
+    }
+
+    /** First live node >= key, wait-free */
+    public Node<K, V> ceiling(K key) {
+        boolean[] marked = { false };
+        Node<K, V> pred = head;
+        Node<K, V> curr = null;
+        for (int i = MAX_LEVEL; i >= 0; i--) {
+            curr = pred.next[i].getReference();
+            while (true) {
+                Node<K, V> succ = curr.next[i].get(marked);
+                while (marked[0]) { // skip deleted nodes without unlinking them
+                    curr = succ;
+                    succ = curr.next[i].get(marked);
+                }
+                if (curr != tail && curr.key.compareTo(key) < 0) {
+                    pred = curr;
+                    curr = succ;
+                } else {
+                    break;
+                }
+            }
+        }
+        return curr == tail ? null : curr;
+    }
+
+    public Node<K, V> first() {
+        return successor(head);
+    }
+
+    /** Next live node after n in key order, also works when n itself was removed meanwhile */
+    public Node<K, V> successor(Node<K, V> n) {
+        Node<K, V> u = n.next[0].getReference();
+        while (u != tail && u.next[0].isMarked())
+            u = u.next[0].getReference();
+        return u == tail ? null : u;
+    }
+
+    // ------------------------ Helper methods ------------------------
+
+    /**
+     * Fills preds/succs with the nodes around key on every level, unlinking
+     * marked nodes on the way (restarts when such a CAS loses a race).
+     * Returns true when succs[0] holds the key.
+     */
+    private boolean find(K key, Node<K, V>[] preds, Node<K, V>[] succs) {
+        boolean[] marked = { false };
+        retry: while (true) {
+            Node<K, V> pred = head;
+            Node<K, V> curr = null;
+            for (int i = MAX_LEVEL; i >= 0; i--) {
+                curr = pred.next[i].getReference();
+                while (true) {
+                    Node<K, V> succ = curr.next[i].get(marked);
+                    while (marked[0]) {
+                        if (!pred.next[i].compareAndSet(curr, succ, false, false))
+                            continue retry;
+                        curr = succ;
+                        succ = curr.next[i].get(marked);
+                    }
+                    if (curr != tail && curr.key.compareTo(key) < 0) {
+                        pred = curr;
+                        curr = succ;
+                    } else {
+                        break;
+                    }
+                }
+                preds[i] = pred;
+                succs[i] = curr;
+            }
+            return curr != tail && curr.key.equals(key);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("ConcurrentSkipList(size=").append(size()).append(") [");
+        for (Node<K, V> u = first(); u != null; u = successor(u)) {
+            if (sb.charAt(sb.length() - 1) != '[')
+                sb.append(", ");
+            sb.append(u);
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+}
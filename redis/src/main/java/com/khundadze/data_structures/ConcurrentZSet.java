@@ -0,0 +1,91 @@
+package com.khundadze.data_structures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.khundadze.data_structures.ZSet.ScoreKey;
+import com.khundadze.data_structures.ZSet.Entry;
+
+/**
+ * Thread-safe ZSet: a ConcurrentHashMap by name next to a ConcurrentSkipList
+ * by (score,name). Writes of the same name are serialized by the map's
+ * per-bin lock; get, query and range never block.
+ * Members are ZSet.Entry records, immutable and safe to share with readers;
+ * an update swaps in a new entry.
+ */
+public class ConcurrentZSet<V> {
+
+    private final ConcurrentHashMap<ByteString, Entry<V>> dict = new ConcurrentHashMap<>();
+    private final ConcurrentSkipList<ScoreKey, Entry<V>> sl = new ConcurrentSkipList<>();
+
+    /** Add or update node, returns the value it replaced (null for a new node) */
+    public V add(ByteString name, double score, V value) {
+        Entry<V> node = new Entry<>(name, score, value);
+        Object[] previous = new Object[1]; // the replaced value, out of the lambda
+        dict.compute(name, (k, old) -> {
+            // the new position goes in before the old one goes out, so readers never miss the member
+            sl.insert(new ScoreKey(score, name), node);
+            if (old != null && Double.compare(old.score(), score) != 0)
+                sl.remove(new ScoreKey(old.score(), name));
+            previous[0] = old != null ? old.value() : null;
+            return node;
+        });
+        @SuppressWarnings("unchecked")
+        V replaced = (V) previous[0];
+        return replaced;
+    }
+
+    public boolean remove(ByteString name) {
+        boolean[] removed = { false };
+        dict.computeIfPresent(name, (k, node) -> {
+            sl.remove(new ScoreKey(node.score(), name));
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    public Entry<V> get(ByteString name) {
+        return dict.get(name);
+    }
+
+    public int size() {
+        return dict.size();
+    }
+
+    public boolean isEmpty() {
+        return dict.isEmpty();
+    }
+
+    public ByteString[] keySet() {
+        return dict.keySet().toArray(new ByteString[0]);
+    }
+
+    /** First node >= (score,name), then move 'offset' steps forward */
+    public Entry<V> query(double score, ByteString name, int offset) {
+        if (offset < 0)
+            throw new UnsupportedOperationException("Backward queries are not supported");
+        ConcurrentSkipList.Node<ScoreKey, Entry<V>> n = sl.ceiling(new ScoreKey(score, name));
+        for (int i = 0; i < offset && n != null; i++)
+            n = sl.successor(n);
+        return n != null ? n.value : null;
+    }
+
+    /**
+     * Like query, then collects up to 'limit' nodes in (score,name) order.
+     * Not a snapshot: a member whose score changes during the walk may be
+     * seen at both positions or at neither.
+     */
+    public List<Entry<V>> range(double score, ByteString name, int offset, int limit) {
+        if (offset < 0)
+            throw new UnsupportedOperationException("Backward queries are not supported");
+        List<Entry<V>> out = new ArrayList<>(Math.min(Math.max(limit, 0), 64));
+        ConcurrentSkipList.Node<ScoreKey, Entry<V>> n = sl.ceiling(new ScoreKey(score, name));
+        for (int i = 0; i < offset && n != null; i++)
+            n = sl.successor(n);
+        for (; out.size() < limit && n != null; n = sl.successor(n))
+            out.add(n.value);
+        return out;
+    }
+}
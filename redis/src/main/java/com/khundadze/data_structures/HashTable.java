@@ -1,5 +1,9 @@
 package com.khundadze.data_structures;
 
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.random.RandomGenerator;
+
 public class HashTable<K, V> {
 
     public static class Node<K, V> {
@@ -25,6 +29,8 @@ public class HashTable<K, V> {
     private static final int MAXIMUM_CAPACITY = 1 << 30;
     private static final int DEFAULT_INITIAL_CAPACITY = 16;
     private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    /** Random buckets randomKey() tries before falling back to a full pass */
+    private static final int RANDOM_PROBES = 64;
 
     public HashTable() {
         this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
@@ -108,6 +114,9 @@ public class HashTable<K, V> {
                     prev.next = node.next;
                 }
                 size--;
+                if (capacity > DEFAULT_INITIAL_CAPACITY && size < capacity * loadFactor / 4) {
+                    shrink();
+                }
                 return node.value;
             }
             prev = node;
@@ -116,38 +125,145 @@ public class HashTable<K, V> {
         return null;
     }
 
-    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Node<K, V> head : table) {
+            for (Node<K, V> node = head; node != null; node = node.next) {
+                action.accept(node.key, node.value);
+            }
+        }
+    }
+
+    /**
+     * Random non-empty bucket, then a random key of its chain (like Redis,
+     * keys in long chains are slightly less likely). remove() keeps the table
+     * from getting sparse, so a few probes normally suffice; after
+     * RANDOM_PROBES misses (a presized table, say) it picks the n-th key in
+     * bucket order instead of spinning, one O(capacity) pass.
+     */
+    public K randomKey(RandomGenerator random) {
+        if (size == 0) {
+            return null;
+        }
+        for (int probe = 0; probe < RANDOM_PROBES; probe++) {
+            Node<K, V> head = table[random.nextInt(capacity)];
+            if (head == null) {
+                continue;
+            }
+            int length = 0;
+            for (Node<K, V> node = head; node != null; node = node.next) {
+                length++;
+            }
+            Node<K, V> node = head;
+            for (int i = random.nextInt(length); i > 0; i--) {
+                node = node.next;
+            }
+            return node.key;
+        }
+        int skip = random.nextInt(size);
+        for (Node<K, V> head : table) {
+            for (Node<K, V> node = head; node != null; node = node.next) {
+                if (skip-- == 0) {
+                    return node.key;
+                }
+            }
+        }
+        throw new IllegalStateException("size " + size + " does not match the buckets");
+    }
+
+    /** Drops every bucket at once, keeping the capacity; the chains are left to the collector */
+    public void clear() {
+        Arrays.fill(table, null);
+        size = 0;
+    }
+
     private void resize() {
-        int oldCapacity = capacity;
-        if (oldCapacity == MAXIMUM_CAPACITY) {
+        if (capacity == MAXIMUM_CAPACITY) {
             return;
         }
+        rehash(capacity << 1);
+    }
 
-        capacity = oldCapacity << 1;
+    /**
+     * Called once the table is below a quarter of its resize threshold:
+     * halves it while the smaller table stays at most half loaded, never
+     * below the default capacity. Like growing, O(n) but amortized.
+     */
+    private void shrink() {
+        int cap = capacity;
+        while (cap > DEFAULT_INITIAL_CAPACITY && size < (cap >> 1) * loadFactor / 2) {
+            cap >>= 1;
+        }
+        rehash(cap);
+    }
+
+    /**
+     * Grows the table once so that expectedSize entries fit without further
+     * resizes, e.g. before a bulk insert; never shrinks it.
+     */
+    public void ensureCapacity(int expectedSize) {
+        long needed = (long) Math.ceil(expectedSize / (double) loadFactor);
+        if (needed <= capacity || capacity == MAXIMUM_CAPACITY) {
+            return;
+        }
+        int cap = capacity;
+        while (cap < needed && cap < MAXIMUM_CAPACITY) {
+            cap <<= 1;
+        }
+        rehash(cap);
+    }
+
+    /** Moves the existing nodes into a table of newCapacity buckets, allocating no nodes */
+    @SuppressWarnings("unchecked")
+    private void rehash(int newCapacity) {
         Node<K, V>[] oldTable = table;
+        capacity = newCapacity;
         table = new Node[capacity];
-        size = 0;
 
         for (Node<K, V> head : oldTable) {
             Node<K, V> node = head;
             while (node != null) {
-                put(node.key, node.value);
-                node = node.next;
+                Node<K, V> next = node.next;
+                int index = hash(node.key);
+                node.next = table[index];
+                table[index] = node;
+                node = next;
             }
         }
     }
 
+    public int capacity() {
+        return capacity;
+    }
+
     public int size() {
         return size;
     }
 
-    public String[] keySet() {
-        String[] keys = new String[size];
+    /**
+     * Visits one bucket and returns the cursor of the next one, 0 when the
+     * walk is complete; start with 0. The cursor is incremented in reverse
+     * bit order (like Redis' SCAN), so a key present for the whole walk is
+     * visited at least once even if the table grows or shrinks between
+     * calls; some may then be visited twice.
+     */
+    public int scan(int cursor, BiConsumer<K, V> visitor) {
+        int mask = capacity - 1;
+        for (Node<K, V> node = table[cursor & mask]; node != null; node = node.next)
+            visitor.accept(node.key, node.value);
+
+        cursor |= ~mask;
+        cursor = Integer.reverse(cursor);
+        cursor++;
+        return Integer.reverse(cursor);
+    }
+
+    public Object[] keySet() {
+        Object[] keys = new Object[size];
         int index = 0;
         for (Node<K, V> head : table) {
             Node<K, V> node = head;
             while (node != null) {
-                keys[index++] = (String) node.key;
+                keys[index++] = node.key;
                 node = node.next;
             }
         }
@@ -0,0 +1,136 @@
+package com.khundadze.data_structures;
+
+import java.util.Arrays;
+
+/**
+ * Sorted array of distinct longs: membership by binary search, no per-element
+ * objects. Meant for small sets, inserts and removes shift the tail.
+ */
+public class IntSet {
+
+    private long[] values;
+    private int size;
+
+    public IntSet() {
+        this(4);
+    }
+
+    public IntSet(int initialCapacity) {
+        this.values = new long[Math.max(initialCapacity, 1)];
+    }
+
+    private IntSet(long[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException(index);
+        return values[index];
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /** Returns false when the value was already present */
+    public boolean add(long value) {
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos >= 0)
+            return false;
+        pos = -pos - 1;
+        if (size == values.length)
+            values = Arrays.copyOf(values, values.length * 2);
+        System.arraycopy(values, pos, values, pos + 1, size - pos);
+        values[pos] = value;
+        size++;
+        return true;
+    }
+
+    public boolean remove(long value) {
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos < 0)
+            return false;
+        System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    public IntSet copy() {
+        return new IntSet(Arrays.copyOf(values, Math.max(size, 1)), size);
+    }
+
+    /** Merge of two sorted arrays, O(|a| + |b|) */
+    public static IntSet intersect(IntSet a, IntSet b) {
+        long[] out = new long[Math.max(Math.min(a.size, b.size), 1)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.size && j < b.size;) {
+            long x = a.values[i];
+            long y = b.values[j];
+            if (x < y) {
+                i++;
+            } else if (x > y) {
+                j++;
+            } else {
+                out[n++] = x;
+                i++;
+                j++;
+            }
+        }
+        return new IntSet(out, n);
+    }
+
+    public static IntSet union(IntSet a, IntSet b) {
+        long[] out = new long[Math.max(a.size + b.size, 1)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            long x = a.values[i];
+            long y = b.values[j];
+            if (x <= y)
+                i++;
+            if (y <= x)
+                j++;
+            out[n++] = Math.min(x, y);
+        }
+        while (i < a.size)
+            out[n++] = a.values[i++];
+        while (j < b.size)
+            out[n++] = b.values[j++];
+        return new IntSet(out, n);
+    }
+
+    /** Elements of a that are not in b */
+    public static IntSet difference(IntSet a, IntSet b) {
+        long[] out = new long[Math.max(a.size, 1)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.size;) {
+            long x = a.values[i];
+            if (j == b.size || x < b.values[j]) {
+                out[n++] = x;
+                i++;
+            } else if (x > b.values[j]) {
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return new IntSet(out, n);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(values, size));
+    }
+}
@@ -0,0 +1,253 @@
+package com.khundadze.data_structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Value of a set key. Starts as an IntSet while every member is a canonical
+ * integer and there are at most MAX_INTSET_ENTRIES of them, and converts
+ * once, for good, to a HashTable of byte strings otherwise. Its values are
+ * all the shared Boolean.TRUE; with compressed oops the value field fits in
+ * the node's alignment padding, so a key-only table would save nothing.
+ */
+public class RedisSet {
+
+    /** Same default as Redis' set-max-intset-entries */
+    public static final int MAX_INTSET_ENTRIES = 512;
+
+    /** Largest |count| SRANDMEMBER accepts for repeated members; the reply is built in memory */
+    public static final long MAX_RANDOM_COUNT = 1 << 20;
+
+    // exactly one of them is non-null
+    private IntSet intset;
+    private HashTable<ByteString, Boolean> table;
+
+    public RedisSet() {
+        this.intset = new IntSet();
+    }
+
+    private RedisSet(IntSet intset) {
+        this.intset = intset;
+    }
+
+    public String encoding() {
+        return intset != null ? "intset" : "hashtable";
+    }
+
+    public int size() {
+        return intset != null ? intset.size() : table.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** Returns false when the member was already present */
+    public boolean add(ByteString member) {
+        if (intset != null) {
+            if (isCanonicalLong(member)) {
+                long value = parseLong(member);
+                if (intset.contains(value))
+                    return false;
+                if (intset.size() < MAX_INTSET_ENTRIES)
+                    return intset.add(value);
+            }
+            convertToTable();
+        }
+        int before = table.size();
+        table.put(member, Boolean.TRUE);
+        return table.size() > before;
+    }
+
+    public boolean remove(ByteString member) {
+        if (intset == null)
+            return table.remove(member) != null;
+        return isCanonicalLong(member) && intset.remove(parseLong(member));
+    }
+
+    public boolean contains(ByteString member) {
+        if (intset == null)
+            return table.containsKey(member);
+        return isCanonicalLong(member) && intset.contains(parseLong(member));
+    }
+
+    /** Intsets list their members in ascending order, hashtables in bucket order */
+    public List<ByteString> members() {
+        List<ByteString> out = new ArrayList<>(size());
+        if (intset != null) {
+            for (int i = 0; i < intset.size(); i++)
+                out.add(ByteString.of(intset.get(i)));
+        } else {
+            table.forEach((member, present) -> out.add(member));
+        }
+        return out;
+    }
+
+    public ByteString randomMember(RandomGenerator random) {
+        if (isEmpty())
+            return null;
+        if (intset != null)
+            return ByteString.of(intset.get(random.nextInt(intset.size())));
+        return table.randomKey(random);
+    }
+
+    /**
+     * SRANDMEMBER count: a positive count returns distinct members (all of them
+     * when count >= size), a negative count returns |count| members that may repeat,
+     * at most MAX_RANDOM_COUNT of them.
+     */
+    public List<ByteString> randomMembers(long count, RandomGenerator random) {
+        if (count < -MAX_RANDOM_COUNT)
+            throw new IllegalArgumentException("Count out of range: " + count);
+        List<ByteString> out = new ArrayList<>();
+        if (isEmpty() || count == 0)
+            return out;
+        if (count < 0) {
+            for (long i = 0; i < -count; i++)
+                out.add(randomMember(random));
+            return out;
+        }
+        if (count >= size())
+            return members();
+
+        // sample positions without replacement from a full listing
+        List<ByteString> all = members();
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(all.size() - i);
+            ByteString tmp = all.get(i);
+            all.set(i, all.get(j));
+            all.set(j, tmp);
+            out.add(all.get(i));
+        }
+        return out;
+    }
+
+    // ------------------------ Set algebra ------------------------
+
+    /**
+     * Intersection: all intsets are merged pairwise from the smallest up;
+     * otherwise the smallest set is iterated and every other set is probed.
+     */
+    public static RedisSet intersect(List<RedisSet> sets) {
+        if (sets.isEmpty())
+            return new RedisSet();
+        RedisSet[] bySize = sets.toArray(new RedisSet[0]);
+        Arrays.sort(bySize, Comparator.comparingInt(RedisSet::size));
+        if (bySize[0].isEmpty())
+            return new RedisSet();
+
+        if (allIntsets(bySize)) {
+            IntSet result = bySize[0].intset;
+            for (int i = 1; i < bySize.length && !result.isEmpty(); i++)
+                result = IntSet.intersect(result, bySize[i].intset);
+            return new RedisSet(result == bySize[0].intset ? result.copy() : result);
+        }
+
+        RedisSet result = new RedisSet();
+        for (ByteString member : bySize[0].members()) {
+            boolean everywhere = true;
+            for (int i = 1; i < bySize.length && everywhere; i++)
+                everywhere = bySize[i].contains(member);
+            if (everywhere)
+                result.add(member);
+        }
+        return result;
+    }
+
+    public static RedisSet union(List<RedisSet> sets) {
+        RedisSet[] all = sets.toArray(new RedisSet[0]);
+        if (allIntsets(all)) {
+            IntSet result = new IntSet();
+            for (RedisSet set : all)
+                result = IntSet.union(result, set.intset);
+            if (result.size() <= MAX_INTSET_ENTRIES)
+                return new RedisSet(result);
+        }
+        RedisSet result = new RedisSet();
+        for (RedisSet set : all) {
+            for (ByteString member : set.members())
+                result.add(member);
+        }
+        return result;
+    }
+
+    /** Members of the first set that are in none of the others */
+    public static RedisSet difference(List<RedisSet> sets) {
+        if (sets.isEmpty())
+            return new RedisSet();
+        RedisSet[] all = sets.toArray(new RedisSet[0]);
+        if (allIntsets(all)) {
+            IntSet result = all[0].intset;
+            for (int i = 1; i < all.length && !result.isEmpty(); i++)
+                result = IntSet.difference(result, all[i].intset);
+            return new RedisSet(result == all[0].intset ? result.copy() : result);
+        }
+
+        RedisSet result = new RedisSet();
+        for (ByteString member : all[0].members()) {
+            boolean elsewhere = false;
+            for (int i = 1; i < all.length && !elsewhere; i++)
+                elsewhere = all[i].contains(member);
+            if (!elsewhere)
+                result.add(member);
+        }
+        return result;
+    }
+
+    // ------------------------ Helper methods ------------------------
+
+    private void convertToTable() {
+        table = new HashTable<>();
+        table.ensureCapacity(intset.size() + 1);
+        for (int i = 0; i < intset.size(); i++)
+            table.put(ByteString.of(intset.get(i)), Boolean.TRUE);
+        intset = null;
+    }
+
+    private static boolean allIntsets(RedisSet[] sets) {
+        for (RedisSet set : sets) {
+            if (set.intset == null)
+                return false;
+        }
+        return true;
+    }
+
+    /** True when s is exactly the decimal form of a long ("007", "+1" and "-0" stay strings) */
+    static boolean isCanonicalLong(ByteString s) {
+        int len = s.length();
+        if (len == 0 || len > 20)
+            return false;
+        int i = s.byteAt(0) == '-' ? 1 : 0;
+        if (i == len || (s.byteAt(i) == '0' && (len > i + 1 || i == 1)))
+            return false;
+        // accumulate negatively, Long.MIN_VALUE has no positive counterpart
+        long limit = i == 1 ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long value = 0;
+        for (int j = i; j < len; j++) {
+            int digit = s.byteAt(j) - '0';
+            if (digit < 0 || digit > 9)
+                return false;
+            if (value < (limit + digit) / 10)
+                return false;
+            value = value * 10 - digit;
+        }
+        return true;
+    }
+
+    /** Only for members that passed isCanonicalLong */
+    private static long parseLong(ByteString s) {
+        boolean negative = s.byteAt(0) == '-';
+        long value = 0;
+        for (int j = negative ? 1 : 0; j < s.length(); j++)
+            value = value * 10 - (s.byteAt(j) - '0');
+        return negative ? value : -value;
+    }
+
+    @Override
+    public String toString() {
+        return "set" + members();
+    }
+}
@@ -1,13 +1,18 @@
 package com.khundadze.data_structures;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
 public class ZSet<V> {
 
     /** Sort by score, then by name (like Redis ZSET) */
-    private static class ScoreKey implements Comparable<ScoreKey> {
+    static class ScoreKey implements Comparable<ScoreKey> {
         final double score;
-        final String name;
+        final ByteString name;
 
-        ScoreKey(double score, String name) {
+        ScoreKey(double score, ByteString name) {
             this.score = score;
             this.name = name;
         }
@@ -40,12 +45,12 @@ public class ZSet<V> {
 
     public static class ZNode<V> {
         SkipList.Node<ScoreKey, ZNode<V>> listNode; // pointer in skip list
-        HashTable.Node<String, ZNode<V>> mapNode; // pointer in hash table
+        HashTable.Node<ByteString, ZNode<V>> mapNode; // pointer in hash table
         public double score;
-        public String name;
+        public ByteString name;
         public V value;
 
-        ZNode(String name, double score, V value) {
+        ZNode(ByteString name, double score, V value) {
             this.name = name;
             this.score = score;
             this.value = value;
@@ -57,7 +62,11 @@ public class ZSet<V> {
         }
     }
 
-    private final HashTable<String, ZNode<V>> ht;
+    /** One member of a bulk add */
+    public record Entry<V>(ByteString name, double score, V value) {
+    }
+
+    private final HashTable<ByteString, ZNode<V>> ht;
     private final SkipList<ScoreKey, ZNode<V>> sl;
 
     public ZSet() {
@@ -65,11 +74,13 @@ public class ZSet<V> {
         this.sl = new SkipList<>();
     }
 
-    /** Add or update node */
-    public void add(String name, double score, V value) {
+    /** Add or update node, returns the value it replaced (null for a new node) */
+    public V add(ByteString name, double score, V value) {
         ZNode<V> node = ht.get(name);
+        V previous = null;
 
         if (node != null) {
+            previous = node.value;
             node.value = value;
             if (Double.compare(node.score, score) != 0) {
                 // remove old position and reinsert with new score
@@ -82,9 +93,54 @@ public class ZSet<V> {
             node.mapNode = ht.put(name, node); // store in hash table by real key
             node.listNode = sl.insert(new ScoreKey(score, name), node); // store in skiplist by (score,name)
         }
+        return previous;
+    }
+
+    /**
+     * Adds or updates every entry, like add() one by one (a later duplicate
+     * wins), and returns the replaced values in batch order. The hash table
+     * is sized once for the whole batch, and the new skip list positions are
+     * inserted in (score,name) order through a finger, so each search starts
+     * where the previous insert ended: sorted bulk loads skip most of the
+     * descent from the head.
+     */
+    public List<V> addAll(List<Entry<V>> batch) {
+        ht.ensureCapacity(ht.size() + batch.size());
+
+        List<V> previous = new ArrayList<>(batch.size());
+        List<ZNode<V>> unlinked = new ArrayList<>(batch.size());
+        for (Entry<V> entry : batch) {
+            ZNode<V> node = ht.get(entry.name());
+            if (node == null) {
+                node = new ZNode<>(entry.name(), entry.score(), entry.value());
+                node.mapNode = ht.put(entry.name(), node);
+                unlinked.add(node);
+                previous.add(null);
+                continue;
+            }
+            previous.add(node.value);
+            node.value = entry.value();
+            if (Double.compare(node.score, entry.score()) != 0) {
+                if (node.listNode != null) { // not already waiting from an earlier duplicate
+                    sl.remove(node.listNode.key);
+                    node.listNode = null;
+                    unlinked.add(node);
+                }
+                node.score = entry.score();
+            }
+        }
+
+        unlinked.sort((a, b) -> {
+            int c = Double.compare(a.score, b.score);
+            return c != 0 ? c : a.name.compareTo(b.name);
+        });
+        SkipList<ScoreKey, ZNode<V>>.Finger finger = sl.finger();
+        for (ZNode<V> node : unlinked)
+            node.listNode = finger.insert(new ScoreKey(node.score, node.name), node);
+        return previous;
     }
 
-    public boolean remove(String name) {
+    public boolean remove(ByteString name) {
         ZNode<V> node = ht.get(name);
         if (node == null)
             return false;
@@ -93,7 +149,13 @@ public class ZSet<V> {
         return true;
     }
 
-    public ZNode<V> get(String name) {
+    /** Removes every node */
+    public void clear() {
+        sl.clear();
+        ht.clear();
+    }
+
+    public ZNode<V> get(ByteString name) {
         return ht.get(name);
     }
 
@@ -105,12 +167,18 @@ public class ZSet<V> {
         return ht.isEmpty();
     }
 
-    public String[] keySet() {
-        return ht.keySet(); // returns the actual String keys now
+    public ByteString[] keySet() {
+        Object[] keys = ht.keySet();
+        return Arrays.copyOf(keys, keys.length, ByteString[].class);
+    }
+
+    /** One hash table bucket per call, see HashTable.scan */
+    public int scan(int cursor, Consumer<ZNode<V>> visitor) {
+        return ht.scan(cursor, (name, node) -> visitor.accept(node));
     }
 
     /** First node >= (score,name), then move 'offset' steps forward */
-    public ZNode<V> query(double score, String name, int offset) {
+    public ZNode<V> query(double score, ByteString name, int offset) {
         if (offset < 0)
             throw new UnsupportedOperationException("Backward queries are not supported");
         SkipList.Node<ScoreKey, ZNode<V>> n = sl.ceiling(new ScoreKey(score, name));
@@ -118,4 +186,17 @@ public class ZSet<V> {
             n = n.next[0];
         return n != null ? n.value : null;
     }
+
+    /** Like query, then collects up to 'limit' nodes in (score,name) order */
+    public List<ZNode<V>> range(double score, ByteString name, int offset, int limit) {
+        if (offset < 0)
+            throw new UnsupportedOperationException("Backward queries are not supported");
+        List<ZNode<V>> out = new ArrayList<>(Math.min(Math.max(limit, 0), 64));
+        SkipList.Node<ScoreKey, ZNode<V>> n = sl.ceiling(new ScoreKey(score, name));
+        for (int i = 0; i < offset && n != null; i++)
+            n = n.next[0];
+        for (; out.size() < limit && n != null; n = n.next[0])
+            out.add(n.value);
+        return out;
+    }
 }
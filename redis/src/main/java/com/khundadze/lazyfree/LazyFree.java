@@ -0,0 +1,61 @@
+package com.khundadze.lazyfree;
+
+import com.khundadze.data_structures.RedisSet;
+import com.khundadze.data_structures.ZSet;
+
+/**
+ * Deletion policy for values already detached from the keyspace. Unlike
+ * Redis there is nothing to tear down here: once the last reference is
+ * dropped the garbage collector reclaims the whole structure on its own
+ * threads, so DEL and UNLINK both cost the event loop O(1). Walking the
+ * nodes to null their links, inline or on a helper thread, would only
+ * add work the collector does anyway.
+ *
+ * What stays is the bookkeeping: values whose effort exceeds the threshold
+ * and that were deleted through a lazy path are counted, matching Redis'
+ * lazyfreed_objects.
+ */
+public class LazyFree {
+
+    /** Same default as Redis' LAZYFREE_THRESHOLD */
+    public static final int DEFAULT_THRESHOLD = 64;
+
+    private final int threshold;
+    private final boolean lazyServerDel;
+
+    private long freed;
+
+    public LazyFree() {
+        this(DEFAULT_THRESHOLD, false);
+    }
+
+    /** lazyServerDel: values replaced by an overwrite are counted too, not only on UNLINK / FLUSHALL ASYNC */
+    public LazyFree(int threshold, boolean lazyServerDel) {
+        this.threshold = threshold;
+        this.lazyServerDel = lazyServerDel;
+    }
+
+    public boolean lazyServerDel() {
+        return lazyServerDel;
+    }
+
+    /** A value detached by UNLINK, FLUSHALL ASYNC or a lazy overwrite; counted when Redis would free it in the background */
+    public void recordLazyFreed(Object value) {
+        if (effortOf(value) > threshold)
+            freed++;
+    }
+
+    /** Big values deleted through a lazy path so far */
+    public long freed() {
+        return freed;
+    }
+
+    /** Elements that Redis would have to unlink one by one; plain values are 1 */
+    public static long effortOf(Object value) {
+        if (value instanceof ZSet<?> zset)
+            return zset.size();
+        if (value instanceof RedisSet set) // an intset is a single array
+            return set.encoding().equals("intset") ? 1 : set.size();
+        return 1;
+    }
+}
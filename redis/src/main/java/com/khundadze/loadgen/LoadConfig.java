@@ -0,0 +1,100 @@
+package com.khundadze.loadgen;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Settings of one load generator run, parsed from the command line */
+public record LoadConfig(
+        String host,
+        int port,
+        int clients,
+        int pipeline,
+        long requests,
+        int keyspace,
+        int valueSize,
+        Map<String, Integer> mix,
+        boolean zipfian,
+        long rate,
+        boolean preload,
+        String jsonPath) {
+
+    public static final String USAGE = """
+            Usage: MainBenchmark [options]
+              -h <host>           server host (default 127.0.0.1)
+              -p <port>           server port (default 5230)
+              -c <clients>        parallel connections (default 50)
+              -P <pipeline>       outstanding requests per connection (default 1)
+              -n <requests>       total requests (default 100000)
+              -r <keyspace>       number of distinct keys (default 100000)
+              -d <bytes>          value size of SET (default 3)
+              --mix <mix>         command weights (default GET=50,SET=50),
+                                  commands: GET, SET, DEL, ZADD, ZRANGE; ZADD adds a random
+                                  key as a member of the sorted set loadgen:zset
+              --dist <dist>       uniform | zipfian key popularity (default uniform)
+              --rate <ops/sec>    open loop at a fixed total rate; latency counts from the
+                                  intended send time (no coordinated omission)
+              --preload           SET every key of the keyspace before measuring
+              --json <file|->     write results as JSON
+            """;
+
+    public static LoadConfig parse(String[] args) {
+        String host = "127.0.0.1";
+        int port = 5230;
+        int clients = 50;
+        int pipeline = 1;
+        long requests = 100_000;
+        int keyspace = 100_000;
+        int valueSize = 3;
+        String mix = "GET=50,SET=50";
+        boolean zipfian = false;
+        long rate = 0;
+        boolean preload = false;
+        String json = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-h" -> host = args[++i];
+                case "-p" -> port = Integer.parseInt(args[++i]);
+                case "-c" -> clients = Integer.parseInt(args[++i]);
+                case "-P" -> pipeline = Integer.parseInt(args[++i]);
+                case "-n" -> requests = Long.parseLong(args[++i]);
+                case "-r" -> keyspace = Integer.parseInt(args[++i]);
+                case "-d" -> valueSize = Integer.parseInt(args[++i]);
+                case "--mix" -> mix = args[++i];
+                case "--dist" -> {
+                    String dist = args[++i];
+                    if (!dist.equals("uniform") && !dist.equals("zipfian"))
+                        throw new IllegalArgumentException("Unknown distribution: " + dist);
+                    zipfian = dist.equals("zipfian");
+                }
+                case "--rate" -> rate = Long.parseLong(args[++i]);
+                case "--preload" -> preload = true;
+                case "--json" -> json = args[++i];
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        if (clients <= 0 || pipeline <= 0 || requests <= 0 || keyspace <= 0 || valueSize < 0 || rate < 0)
+            throw new IllegalArgumentException("Counts and sizes must be positive");
+
+        return new LoadConfig(host, port, clients, pipeline, requests, keyspace, valueSize, parseMix(mix),
+                zipfian, rate, preload, json);
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] commandAndWeight = entry.trim().split("=");
+            String command = commandAndWeight[0].toUpperCase();
+            if (!LoadGenerator.COMMANDS.contains(command))
+                throw new IllegalArgumentException("Unsupported command in mix: " + command);
+            int weight = commandAndWeight.length > 1 ? Integer.parseInt(commandAndWeight[1]) : 1;
+            if (weight < 0)
+                throw new IllegalArgumentException("Negative weight for " + command);
+            weights.put(command, weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0)
+            throw new IllegalArgumentException("Command mix has no weight");
+        return weights;
+    }
+}
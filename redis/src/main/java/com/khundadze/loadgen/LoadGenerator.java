@@ -0,0 +1,195 @@
+package com.khundadze.loadgen;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SynchronizedHistogram;
+
+import com.khundadze.server_client.NioClient;
+
+/**
+ * redis-benchmark style load: N connections, each keeping up to 'pipeline'
+ * requests in flight, drawing commands from a weighted mix and keys from a
+ * uniform or zipfian distribution. Latencies go into HdrHistograms.
+ */
+public class LoadGenerator {
+
+    static final List<String> COMMANDS = List.of("GET", "SET", "DEL", "ZADD", "ZRANGE");
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int ZRANGE_LIMIT = 10;
+    // like redis-benchmark's zadd test, every ZADD goes to one sorted set, members drawn from the keyspace
+    static final String ZADD_KEY = "loadgen:zset";
+
+    private final LoadConfig config;
+    private final String[] keys;
+    private final String value;
+    private final String[] commands; // mix entries with weight > 0
+    private final int[] cumulativeWeights;
+    private final ZipfianGenerator zipfian;
+
+    public LoadGenerator(LoadConfig config) {
+        this.config = config;
+        this.keys = new String[config.keyspace()];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = "key:" + i;
+        this.value = "x".repeat(config.valueSize());
+
+        List<String> names = new ArrayList<>();
+        List<Integer> sums = new ArrayList<>();
+        int sum = 0;
+        for (Map.Entry<String, Integer> entry : config.mix().entrySet()) {
+            if (entry.getValue() == 0)
+                continue;
+            sum += entry.getValue();
+            names.add(entry.getKey());
+            sums.add(sum);
+        }
+        this.commands = names.toArray(new String[0]);
+        this.cumulativeWeights = sums.stream().mapToInt(Integer::intValue).toArray();
+        this.zipfian = config.zipfian() ? new ZipfianGenerator(config.keyspace()) : null;
+    }
+
+    public LoadReport run() throws IOException, InterruptedException {
+        NioClient[] clients = new NioClient[config.clients()];
+        try {
+            for (int i = 0; i < clients.length; i++)
+                clients[i] = new NioClient(config.host(), config.port());
+
+            if (config.preload())
+                preload(clients);
+
+            Worker[] workers = new Worker[clients.length];
+            Thread[] threads = new Thread[clients.length];
+            SplittableRandom seed = new SplittableRandom(42);
+            for (int i = 0; i < workers.length; i++) {
+                long share = config.requests() / clients.length + (i < config.requests() % clients.length ? 1 : 0);
+                workers[i] = new Worker(clients[i], share, seed.split());
+                threads[i] = new Thread(workers[i], "loadgen-" + i);
+            }
+
+            long start = System.nanoTime();
+            for (Thread thread : threads)
+                thread.start();
+            for (Thread thread : threads)
+                thread.join();
+            long elapsed = System.nanoTime() - start;
+
+            Histogram latency = new Histogram(MAX_LATENCY_NANOS, 3);
+            long errors = 0;
+            long[] perCommand = new long[commands.length];
+            for (Worker worker : workers) {
+                latency.add(worker.latency);
+                errors += worker.errors.get();
+                for (int c = 0; c < perCommand.length; c++)
+                    perCommand[c] += worker.perCommand[c];
+            }
+
+            // a closed loop stops sending while it waits, so stalls hide; HdrHistogram
+            // backfills the missing samples assuming requests were due every mean latency
+            Histogram corrected = config.rate() > 0 ? latency
+                    : latency.copyCorrectedForCoordinatedOmission((long) latency.getMean());
+
+            return new LoadReport(config, commands, perCommand, errors, elapsed, latency, corrected);
+        } finally {
+            for (NioClient client : clients) {
+                if (client != null)
+                    client.close();
+            }
+        }
+    }
+
+    // ------------------------ Helper methods ------------------------
+
+    private void preload(NioClient[] clients) {
+        List<CompletableFuture<Object>> window = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            window.add(clients[i % clients.length].set(keys[i], value, i));
+            if (window.size() == 10_000) {
+                CompletableFuture.allOf(window.toArray(new CompletableFuture<?>[0])).join();
+                window.clear();
+            }
+        }
+        CompletableFuture.allOf(window.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private int pickCommand(SplittableRandom random) {
+        int r = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (r < cumulativeWeights[i])
+                return i;
+        }
+        return cumulativeWeights.length - 1;
+    }
+
+    private String pickKey(SplittableRandom random) {
+        return keys[zipfian != null ? (int) zipfian.next(random) : random.nextInt(keys.length)];
+    }
+
+    private CompletableFuture<Object> send(NioClient client, String command, SplittableRandom random) {
+        return switch (command) {
+            case "GET" -> client.call("GET", pickKey(random));
+            case "SET" -> client.call("SET", pickKey(random), value);
+            case "DEL" -> client.call("DEL", pickKey(random));
+            // sorted-set writes/reads: ZADD into one sorted set, and a 10 key ZQUERY walk of the keyspace
+            case "ZADD" -> client.call("ZADD", ZADD_KEY, random.nextDouble() * keys.length, pickKey(random));
+            case "ZRANGE" -> client.call("ZQUERY", random.nextDouble() * keys.length, "", 0, ZRANGE_LIMIT);
+            default -> throw new IllegalStateException("Unexpected command " + command);
+        };
+    }
+
+    private final class Worker implements Runnable {
+        final NioClient client;
+        final long requests;
+        final SplittableRandom random;
+        final Semaphore inFlight = new Semaphore(config.pipeline());
+
+        // completions run on the client's I/O thread, or here if the reply already arrived
+        final Histogram latency = new SynchronizedHistogram(MAX_LATENCY_NANOS, 3);
+        final AtomicLong errors = new AtomicLong();
+        final long[] perCommand = new long[commands.length];
+
+        Worker(NioClient client, long requests, SplittableRandom random) {
+            this.client = client;
+            this.requests = requests;
+            this.random = random;
+        }
+
+        @Override
+        public void run() {
+            long interval = config.rate() > 0 ? config.clients() * 1_000_000_000L / config.rate() : 0;
+            long start = System.nanoTime();
+
+            for (long i = 0; i < requests; i++) {
+                long intended = start + i * interval;
+                if (interval > 0) {
+                    for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime())
+                        LockSupport.parkNanos(wait);
+                }
+                inFlight.acquireUninterruptibly();
+
+                // open loop measures from when the request was due, not when it got out
+                long from = interval > 0 ? intended : System.nanoTime();
+                int command = pickCommand(random);
+                perCommand[command]++;
+                send(client, commands[command], random).whenComplete((reply, error) -> {
+                    latency.recordValue(Math.min(System.nanoTime() - from, MAX_LATENCY_NANOS));
+                    if (error != null)
+                        errors.incrementAndGet();
+                    inFlight.release();
+                });
+            }
+
+            inFlight.acquireUninterruptibly(config.pipeline()); // wait for the last replies
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.khundadze.loadgen;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+/** Outcome of a load generator run, printable as text or JSON */
+public record LoadReport(
+        LoadConfig config,
+        String[] commands,
+        long[] perCommand,
+        long errors,
+        long elapsedNanos,
+        Histogram latency,
+        Histogram corrected) {
+
+    public long requests() {
+        long total = 0;
+        for (long count : perCommand)
+            total += count;
+        return total;
+    }
+
+    public double opsPerSecond() {
+        return requests() * 1e9 / elapsedNanos;
+    }
+
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%d requests completed in %.2f seconds%n", requests(), elapsedNanos / 1e9));
+        sb.append(String.format(Locale.ROOT, "  %d parallel clients, pipeline %d, %d keys (%s), %d bytes payload%n",
+                config.clients(), config.pipeline(), config.keyspace(), config.zipfian() ? "zipfian" : "uniform",
+                config.valueSize()));
+        if (config.rate() > 0)
+            sb.append(String.format(Locale.ROOT, "  open loop at %d ops/sec%n", config.rate()));
+        sb.append(String.format(Locale.ROOT, "  %d errors%n%n", errors));
+        sb.append(String.format(Locale.ROOT, "throughput summary: %.2f requests per second%n", opsPerSecond()));
+        appendLatency(sb, "latency summary (usec)", latency);
+        appendLatency(sb, "latency corrected for coordinated omission (usec)", corrected);
+        return sb.toString();
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{\n");
+        sb.append("  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+        sb.append("  \"config\": {");
+        sb.append("\"host\": \"").append(config.host()).append("\", ");
+        sb.append("\"port\": ").append(config.port()).append(", ");
+        sb.append("\"clients\": ").append(config.clients()).append(", ");
+        sb.append("\"pipeline\": ").append(config.pipeline()).append(", ");
+        sb.append("\"requests\": ").append(config.requests()).append(", ");
+        sb.append("\"keyspace\": ").append(config.keyspace()).append(", ");
+        sb.append("\"valueSize\": ").append(config.valueSize()).append(", ");
+        sb.append("\"distribution\": \"").append(config.zipfian() ? "zipfian" : "uniform").append("\", ");
+        sb.append("\"rate\": ").append(config.rate()).append(", ");
+        sb.append("\"mix\": {");
+        boolean first = true;
+        for (Map.Entry<String, Integer> entry : config.mix().entrySet()) {
+            sb.append(first ? "" : ", ").append('"').append(entry.getKey()).append("\": ").append(entry.getValue());
+            first = false;
+        }
+        sb.append("}},\n");
+        sb.append("  \"requests\": ").append(requests()).append(",\n");
+        sb.append("  \"errors\": ").append(errors).append(",\n");
+        sb.append("  \"elapsedMs\": ").append(String.format(Locale.ROOT, "%.3f", elapsedNanos / 1e6)).append(",\n");
+        sb.append("  \"opsPerSec\": ").append(String.format(Locale.ROOT, "%.2f", opsPerSecond())).append(",\n");
+        sb.append("  \"perCommand\": {");
+        for (int i = 0; i < commands.length; i++)
+            sb.append(i == 0 ? "" : ", ").append('"').append(commands[i]).append("\": ").append(perCommand[i]);
+        sb.append("},\n");
+        sb.append("  \"latencyUs\": ").append(latencyJson(latency)).append(",\n");
+        sb.append("  \"correctedLatencyUs\": ").append(latencyJson(corrected)).append("\n");
+        return sb.append("}\n").toString();
+    }
+
+    private static void appendLatency(StringBuilder sb, String title, Histogram h) {
+        sb.append(String.format(Locale.ROOT, "%s:%n    %10s %10s %10s %10s %10s%n", title, "avg", "p50", "p99",
+                "p99.9", "max"));
+        sb.append(String.format(Locale.ROOT, "    %10.3f %10.3f %10.3f %10.3f %10.3f%n", h.getMean() / 1e3,
+                us(h, 50), us(h, 99), us(h, 99.9), h.getMaxValue() / 1e3));
+    }
+
+    private static String latencyJson(Histogram h) {
+        return String.format(Locale.ROOT,
+                "{\"avg\": %.3f, \"p50\": %.3f, \"p99\": %.3f, \"p99.9\": %.3f, \"max\": %.3f}",
+                h.getMean() / 1e3, us(h, 50), us(h, 99), us(h, 99.9), h.getMaxValue() / 1e3);
+    }
+
+    private static double us(Histogram h, double percentile) {
+        return h.getValueAtPercentile(percentile) / 1e3;
+    }
+}
@@ -0,0 +1,50 @@
+package com.khundadze.loadgen;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zipfian integers in [0, items), item 0 being the most popular
+ * (Gray et al. "Quickly Generating Billion-Record Synthetic Databases", as used by YCSB).
+ */
+public class ZipfianGenerator {
+
+    public static final double DEFAULT_THETA = 0.99;
+
+    private final long items;
+    private final double theta;
+    private final double alpha;
+    private final double zetan;
+    private final double eta;
+
+    public ZipfianGenerator(long items) {
+        this(items, DEFAULT_THETA);
+    }
+
+    public ZipfianGenerator(long items, double theta) {
+        if (items <= 0)
+            throw new IllegalArgumentException("Illegal item count: " + items);
+        this.items = items;
+        this.theta = theta;
+        this.alpha = 1.0 / (1.0 - theta);
+        this.zetan = zeta(items, theta);
+        double zeta2 = zeta(2, theta);
+        this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2 / zetan);
+    }
+
+    public long next(SplittableRandom random) {
+        double u = random.nextDouble();
+        double uz = u * zetan;
+        if (uz < 1.0)
+            return 0;
+        if (uz < 1.0 + Math.pow(0.5, theta))
+            return Math.min(1, items - 1);
+        return Math.min(items - 1, (long) (items * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++)
+            sum += 1 / Math.pow(i, theta);
+        return sum;
+    }
+}
@@ -1,8 +1,118 @@
 package com.khundadze.model;
 
+import java.util.HashMap;
+
+import com.khundadze.data_structures.ByteString;
+
 public enum Command {
-    GET,
-    SET,
-    DEL,
-    KEYS
+    GET(true, 2),
+    SET(true, -2),
+    DEL(true, -2),
+    KEYS(false, -1),
+    ZQUERY(false, 5),
+    RESTORE(true, -4),
+    ASKING(false, 1),
+    CLUSTER(false, -2),
+    MULTI(false, 1),
+    EXEC(false, 1),
+    DISCARD(false, 1),
+    WATCH(false, -2),
+    UNWATCH(false, 1),
+    PING(false, -1),
+    SUBSCRIBE(false, -2),
+    UNSUBSCRIBE(false, -1),
+    PSUBSCRIBE(false, -2),
+    PUNSUBSCRIBE(false, -1),
+    PUBLISH(false, 3),
+    HELLO(false, -1),
+    CLIENT(false, -2),
+    INFO(false, -1),
+    LATENCY(false, -2),
+    SLOWLOG(false, -2),
+    HOTKEYS(false, -1),
+    BIGKEYS(false, -1),
+    UNLINK(true, -2),
+    FLUSHALL(false, -1),
+    SADD(true, -3),
+    SREM(true, -3),
+    SISMEMBER(true, 3),
+    SMEMBERS(true, 2),
+    SCARD(true, 2),
+    SRANDMEMBER(true, -2),
+    SINTER(true, -2),
+    SUNION(true, -2),
+    SDIFF(true, -2),
+    MGET(true, -2),
+    MSET(true, -3),
+    MSETNX(true, -3),
+    ZADD(true, -4),
+    ZMSCORE(true, -3);
+
+    private static final HashMap<ByteString, Command> BY_NAME = new HashMap<>();
+
+    static {
+        for (Command command : values())
+            BY_NAME.put(ByteString.of(command.name()), command);
+    }
+
+    private final boolean keyed;
+    private final int arity;
+
+    /** arity counts the command name too, like Redis: n means exactly n words, -n at least n */
+    Command(boolean keyed, int arity) {
+        this.keyed = keyed;
+        this.arity = arity;
+    }
+
+    /**
+     * Case-insensitive lookup straight from the request bytes, like valueOf
+     * it throws IllegalArgumentException for unknown names. Upper case names
+     * hit the table directly, others pay for one upper-cased copy.
+     */
+    public static Command of(ByteString name) {
+        Command command = BY_NAME.get(name);
+        if (command == null)
+            command = BY_NAME.get(name.toUpperCaseAscii());
+        if (command == null)
+            throw new IllegalArgumentException("Unknown command " + name);
+        return command;
+    }
+
+    /** Checked before a command is run or queued, so handlers can index their required arguments */
+    public boolean acceptsArgCount(int args) {
+        int words = args + 1;
+        return arity >= 0 ? words == arity : words >= -arity;
+    }
+
+    /** Keyed commands are routed by the hash slot of their name */
+    public boolean isKeyed() {
+        return keyed;
+    }
+
+    /** Commands whose 4th word is a score: SET name value score */
+    public boolean hasScore() {
+        return this == SET || this == RESTORE;
+    }
+
+    /** Every keyStep-th argument is a key, so they all have to live in the same hash slot */
+    public boolean isMultiKey() {
+        return this == SINTER || this == SUNION || this == SDIFF || this == DEL || this == UNLINK
+                || this == MGET || this == MSET || this == MSETNX;
+    }
+
+    /** Distance between the keys of a multi-key command: MSET key value key value ... */
+    public int keyStep() {
+        return this == MSET || this == MSETNX ? 2 : 1;
+    }
+
+    /** Executed immediately even while a MULTI block is queuing commands */
+    public boolean isTransactionControl() {
+        return this == MULTI || this == EXEC || this == DISCARD || this == WATCH;
+    }
+
+    /** The only commands a connection may send while it has pub/sub subscriptions */
+    public boolean isAllowedWhileSubscribed() {
+        return this == SUBSCRIBE || this == UNSUBSCRIBE || this == PSUBSCRIBE || this == PUNSUBSCRIBE
+                || this == PING || this == HELLO;
+    }
 }
@@ -1,9 +1,12 @@
 package com.khundadze.model;
 
+import com.khundadze.data_structures.ByteString;
+
 public record RequestDto(
                 Command command,
-                String name,
+                ByteString name,
                 Object value,
-                Double score) {
+                Double score,
+                ByteString[] args) {
 
 }
@@ -0,0 +1,13 @@
+package com.khundadze.protocol;
+
+/** The peer sent bytes that aren't valid RESP; the connection can't be resynchronized */
+public class RespProtocolException extends RuntimeException {
+
+    public RespProtocolException(String message) {
+        super(message);
+    }
+
+    public RespProtocolException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,293 @@
+package com.khundadze.protocol;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.khundadze.data_structures.ByteString;
+
+/**
+ * Incremental RESP2/RESP3 decoder: feed it whatever the socket returned and
+ * take complete frames out; partial frames wait for more bytes, so replies
+ * of any size and several pipelined replies per read both work.
+ * With inline commands enabled (server side) a line that doesn't start with
+ * '*' is split on spaces, like typing "SET k v" into telnet.
+ * In binary mode (server side) bulk strings and inline words come out as
+ * ByteStrings copied straight from the buffer, never decoded as UTF-8.
+ */
+public class RespReader {
+
+    /** A "-ERR ..." reply */
+    public record ErrorReply(String message) {
+        @Override
+        public String toString() {
+            return "(error) " + message;
+        }
+    }
+
+    /** An out-of-band RESP3 push (">"), e.g. invalidate or pub/sub message */
+    public record Push(List<Object> items) {
+        public String kind() {
+            return items.isEmpty() ? "" : String.valueOf(items.get(0));
+        }
+    }
+
+    /** Longest bulk string accepted (Redis' proto-max-bulk-len) */
+    public static final int MAX_BULK_LENGTH = 512 * 1024 * 1024;
+    /** Most elements accepted in one array, map or push */
+    public static final int MAX_AGGREGATE_LENGTH = 1 << 26;
+    /** Longest inline command or header line (Redis' PROTO_INLINE_MAX_SIZE) */
+    public static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private static final Object INCOMPLETE = new Object();
+    private static final Object STARTED = new Object(); // an aggregate header was read
+
+    /** An array, map or push whose elements are still arriving */
+    private static final class Aggregate {
+        final byte type;
+        long remaining; // elements still to read, keys and values count separately for maps
+        final List<Object> items = new ArrayList<>(); // never sized from the peer's count
+
+        Aggregate(byte type, long remaining) {
+            this.type = type;
+            this.remaining = remaining;
+        }
+
+        Object build() {
+            return switch (type) {
+                case '>' -> new Push(items);
+                case '%' -> {
+                    Map<Object, Object> map = new LinkedHashMap<>();
+                    for (int i = 0; i + 1 < items.size(); i += 2)
+                        map.put(items.get(i), items.get(i + 1));
+                    yield map;
+                }
+                default -> items;
+            };
+        }
+    }
+
+    private byte[] data = new byte[4096];
+    private int pos; // first unconsumed byte
+    private int end; // one past the last buffered byte
+
+    // parse state kept across feeds, so a frame arriving in pieces is never re-parsed
+    private final ArrayDeque<Aggregate> open = new ArrayDeque<>();
+    private int bulkLength = -1; // payload length of a bulk string whose header was read
+    private int scanned; // bytes from pos already searched for the end of the current line
+
+    private Object parsed = INCOMPLETE;
+
+    private final boolean inlineCommands;
+    private final boolean binary;
+
+    public RespReader() {
+        this(false);
+    }
+
+    public RespReader(boolean inlineCommands) {
+        this(inlineCommands, false);
+    }
+
+    public RespReader(boolean inlineCommands, boolean binary) {
+        this.inlineCommands = inlineCommands;
+        this.binary = binary;
+    }
+
+    public void feed(ByteBuffer src) {
+        int n = src.remaining();
+        if (end + n > data.length) {
+            // compact first, grow only if the pending bytes really are that many
+            int pending = end - pos;
+            byte[] target = pending + n > data.length ? new byte[Math.max(data.length * 2, pending + n)] : data;
+            System.arraycopy(data, pos, target, 0, pending);
+            data = target;
+            pos = 0;
+            end = pending;
+        }
+        src.get(data, end, n);
+        end += n;
+    }
+
+    public boolean hasNext() {
+        if (parsed != INCOMPLETE)
+            return true;
+        try {
+            while (true) {
+                Object value = nextValue();
+                if (value == INCOMPLETE)
+                    return false;
+                if (value == STARTED)
+                    continue;
+                // hand the value to its enclosing aggregates, closing those that are now complete
+                while (true) {
+                    Aggregate parent = open.peek();
+                    if (parent == null) {
+                        parsed = value;
+                        return true;
+                    }
+                    parent.items.add(value);
+                    if (--parent.remaining > 0)
+                        break;
+                    open.pop();
+                    value = parent.build();
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new RespProtocolException("Invalid length or number", e);
+        }
+    }
+
+    /** Next complete frame; RESP nulls are returned as null */
+    public Object next() {
+        if (!hasNext())
+            throw new IllegalStateException("No complete frame buffered");
+        Object value = parsed;
+        parsed = INCOMPLETE;
+        return value;
+    }
+
+    /** Bytes received but not parsed yet */
+    public int buffered() {
+        return end - pos;
+    }
+
+    // ------------------------ Helper methods ------------------------
+
+    /** A complete scalar or empty aggregate, STARTED after an aggregate header, or INCOMPLETE */
+    private Object nextValue() {
+        if (bulkLength >= 0)
+            return readBulk();
+        if (pos >= end)
+            return INCOMPLETE;
+        if (inlineCommands && open.isEmpty() && data[pos] != '*')
+            return parseInline();
+
+        int lineEnd = findLineEnd();
+        if (lineEnd < 0)
+            return INCOMPLETE;
+        byte type = data[pos];
+        String line = new String(data, pos + 1, lineEnd - pos - 1, StandardCharsets.UTF_8);
+        consume(lineEnd + 2);
+
+        switch (type) {
+            case '+' -> {
+                return line;
+            }
+            case '-' -> {
+                return new ErrorReply(line);
+            }
+            case ':' -> {
+                return Long.parseLong(line);
+            }
+            case ',' -> {
+                return Double.parseDouble(line);
+            }
+            case '#' -> {
+                return line.equals("t");
+            }
+            case '_' -> {
+                return null;
+            }
+            case '$' -> {
+                long length = parseLength(line, MAX_BULK_LENGTH, "bulk");
+                if (length < 0)
+                    return null;
+                bulkLength = (int) length;
+                return readBulk();
+            }
+            case '*', '>', '%' -> {
+                long count = parseLength(line, MAX_AGGREGATE_LENGTH, "multibulk");
+                if (count < 0)
+                    return null;
+                Aggregate aggregate = new Aggregate(type, type == '%' ? 2 * count : count);
+                if (count == 0)
+                    return aggregate.build();
+                open.push(aggregate);
+                return STARTED;
+            }
+            default -> throw new RespProtocolException("Unknown RESP type '" + (char) type + "'");
+        }
+    }
+
+    /** -1 is a RESP null, anything else outside 0..max can't be honoured */
+    private static long parseLength(String line, int max, String what) {
+        long length = Long.parseLong(line);
+        if (length < -1 || length > max)
+            throw new RespProtocolException("Invalid " + what + " length " + length);
+        return length;
+    }
+
+    private Object readBulk() {
+        if (end - pos < (long) bulkLength + 2)
+            return INCOMPLETE;
+        Object bulk = binary ? ByteString.copyOf(data, pos, bulkLength)
+                : new String(data, pos, bulkLength, StandardCharsets.UTF_8);
+        consume(pos + bulkLength + 2);
+        bulkLength = -1;
+        return bulk;
+    }
+
+    /** "\n" terminated, "\r\n" tolerated, split on runs of spaces */
+    private Object parseInline() {
+        int i = pos + scanned;
+        for (; i < end; i++) {
+            if (data[i] == '\n') {
+                int lineEnd = i > pos && data[i - 1] == '\r' ? i - 1 : i;
+                Object words;
+                if (binary) {
+                    words = splitWords(pos, lineEnd);
+                } else {
+                    String line = new String(data, pos, lineEnd - pos, StandardCharsets.UTF_8).trim();
+                    words = line.isEmpty() ? List.of() : List.of((Object[]) line.split(" +"));
+                }
+                consume(i + 1);
+                return words;
+            }
+        }
+        unterminated(i);
+        return INCOMPLETE;
+    }
+
+    private List<Object> splitWords(int from, int to) {
+        List<Object> words = new ArrayList<>();
+        int i = from;
+        while (i < to) {
+            while (i < to && data[i] == ' ')
+                i++;
+            int wordStart = i;
+            while (i < to && data[i] != ' ')
+                i++;
+            if (i > wordStart)
+                words.add(ByteString.copyOf(data, wordStart, i - wordStart));
+        }
+        return words;
+    }
+
+    /** Index of the '\r' ending the line at pos, or -1 if it hasn't arrived yet */
+    private int findLineEnd() {
+        int i = Math.max(pos, pos + scanned - 1); // a '\r' may have been the last byte seen
+        for (; i + 1 < end; i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n')
+                return i;
+        }
+        unterminated(end);
+        return -1;
+    }
+
+    /** Remembers how far a line was searched; a line that never ends is a protocol error, not a bigger buffer */
+    private void unterminated(int searchedTo) {
+        scanned = searchedTo - pos;
+        if (scanned > MAX_LINE_LENGTH)
+            throw new RespProtocolException("Line longer than " + MAX_LINE_LENGTH + " bytes");
+    }
+
+    private void consume(int to) {
+        pos = to;
+        scanned = 0;
+    }
+}
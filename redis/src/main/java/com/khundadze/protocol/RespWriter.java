@@ -0,0 +1,155 @@
+package com.khundadze.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Set;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.model.ResponseDto;
+import com.khundadze.model.ServerType;
+
+/** Serializes replies as RESP2 frames, or RESP3 for connections that sent HELLO 3 */
+public final class RespWriter {
+
+    private static final byte[] CRLF = { '\r', '\n' };
+    private static final byte[] NIL = "$-1\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RESP3_NULL = "_\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final Set<String> ERROR_CODES = Set.of("MOVED", "ASK", "CLUSTERDOWN", "EXECABORT", "WRONGTYPE",
+            "CROSSSLOT", "NOPROTO");
+
+    private RespWriter() {
+    }
+
+    /** Hands its array to the ByteBuffer instead of copying it like toByteArray does */
+    private static final class Output extends ByteArrayOutputStream {
+        Output(int size) {
+            super(size);
+        }
+
+        ByteBuffer toBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    public static ByteBuffer encode(ResponseDto response) {
+        return encode(response, false);
+    }
+
+    public static ByteBuffer encode(ResponseDto response, boolean resp3) {
+        // sized for a bulk value up front so a large GET reply isn't copied while the buffer grows
+        Output out = new Output(response.value() instanceof ByteString bytes ? bytes.length() + 16 : 64);
+        write(out, response.type(), response.value(), resp3);
+        return out.toBuffer();
+    }
+
+    /** Array of bulk strings/integers, e.g. a pub/sub message frame */
+    public static ByteBuffer encodeArray(Object... items) {
+        Output out = new Output(64);
+        write(out, ServerType.SERVER_ARRAY, items, false);
+        return out.toBuffer();
+    }
+
+    /** Client request: an array of bulk strings */
+    public static ByteBuffer encodeCommand(Object... args) {
+        Output out = new Output(32 + 16 * args.length);
+        writeLine(out, '*', Integer.toString(args.length));
+        for (Object arg : args)
+            writeBulk(out, arg);
+        return out.toBuffer();
+    }
+
+    /** Out-of-band frame: a RESP3 push, or a plain array for RESP2 connections */
+    public static ByteBuffer encodePush(boolean resp3, Object... items) {
+        if (!resp3)
+            return encodeArray(items);
+        Output out = new Output(64);
+        writeLine(out, '>', Integer.toString(items.length));
+        for (Object item : items)
+            writeElement(out, item, true);
+        return out.toBuffer();
+    }
+
+    // ------------------------ Helper methods ------------------------
+
+    private static void write(ByteArrayOutputStream out, ServerType type, Object value, boolean resp3) {
+        if (value == null && (type != ServerType.SERVER_ARRAY || resp3)) {
+            out.writeBytes(resp3 ? RESP3_NULL : NIL);
+            return;
+        }
+
+        switch (type) {
+            case SERVER_NIL -> out.writeBytes(resp3 ? RESP3_NULL : NIL);
+            case SERVER_ERROR -> writeLine(out, '-', errorMessage(value.toString()));
+            case SERVER_INTEGER -> writeLine(out, ':', value.toString());
+            case SERVER_STRING -> {
+                // short status replies (OK, QUEUED) go out as simple strings
+                if (value instanceof String s && s.indexOf('\r') < 0 && s.indexOf('\n') < 0)
+                    writeLine(out, '+', s);
+                else
+                    writeBulk(out, value);
+            }
+            case SERVER_ARRAY -> {
+                if (value == null) {
+                    writeLine(out, '*', "-1");
+                } else if (value instanceof Object[] items) {
+                    writeLine(out, '*', Integer.toString(items.length));
+                    for (Object item : items)
+                        writeElement(out, item, resp3);
+                } else if (value instanceof Collection<?> items) {
+                    writeLine(out, '*', Integer.toString(items.size()));
+                    for (Object item : items)
+                        writeElement(out, item, resp3);
+                } else {
+                    writeLine(out, '*', "1");
+                    writeElement(out, value, resp3);
+                }
+            }
+        }
+    }
+
+    private static void writeElement(ByteArrayOutputStream out, Object item, boolean resp3) {
+        if (item instanceof ResponseDto response)
+            write(out, response.type(), response.value(), resp3);
+        else if (item instanceof Integer || item instanceof Long)
+            write(out, ServerType.SERVER_INTEGER, item, resp3);
+        else if (item instanceof Object[] || item instanceof Collection<?>)
+            write(out, ServerType.SERVER_ARRAY, item, resp3);
+        else if (item == null)
+            out.writeBytes(resp3 ? RESP3_NULL : NIL);
+        else
+            writeBulk(out, item);
+    }
+
+    private static void writeBulk(ByteArrayOutputStream out, Object value) {
+        if (value instanceof ByteString bytes) { // stored keys and values go out as they came in
+            writeLine(out, '$', Integer.toString(bytes.length()));
+            bytes.writeTo(out);
+            out.writeBytes(CRLF);
+            return;
+        }
+        byte[] data = value instanceof byte[] bytes ? bytes : value.toString().getBytes(StandardCharsets.UTF_8);
+        writeLine(out, '$', Integer.toString(data.length));
+        out.writeBytes(data);
+        out.writeBytes(CRLF);
+    }
+
+    private static void writeLine(ByteArrayOutputStream out, char prefix, String line) {
+        out.write(prefix);
+        out.writeBytes(line.getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(CRLF);
+    }
+
+    /**
+     * Errors start with an error code clients can switch on, ERR by default.
+     * They are one line, so CR/LF (e.g. from a client argument in an
+     * exception message) become spaces instead of injecting reply lines.
+     */
+    private static String errorMessage(String message) {
+        message = message.replace('\r', ' ').replace('\n', ' ');
+        int space = message.indexOf(' ');
+        String code = space > 0 ? message.substring(0, space) : message;
+        return ERROR_CODES.contains(code) ? message : "ERR " + message;
+    }
+}
@@ -0,0 +1,66 @@
+package com.khundadze.pubsub;
+
+import java.util.regex.Pattern;
+
+/** Redis-style glob (*, ?, [abc], [^a-z], \x) compiled once into a regex */
+public final class GlobPattern {
+
+    private final String glob;
+    private final Pattern compiled;
+
+    public GlobPattern(String glob) {
+        this.glob = glob;
+        this.compiled = Pattern.compile(toRegex(glob), Pattern.DOTALL);
+    }
+
+    public boolean matches(String text) {
+        return compiled.matcher(text).matches();
+    }
+
+    public String glob() {
+        return glob;
+    }
+
+    @Override
+    public String toString() {
+        return glob;
+    }
+
+    private static String toRegex(String glob) {
+        StringBuilder sb = new StringBuilder(glob.length() + 8);
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> sb.append(".*");
+                case '?' -> sb.append('.');
+                case '\\' -> escape(sb, i + 1 < glob.length() ? glob.charAt(++i) : '\\');
+                case '[' -> {
+                    int start = i + 1 < glob.length() && glob.charAt(i + 1) == '^' ? i + 2 : i + 1;
+                    int close = glob.indexOf(']', start);
+                    if (close <= start) { // unterminated or empty class matches a literal '['
+                        escape(sb, c);
+                        break;
+                    }
+                    sb.append(start == i + 2 ? "[^" : "[");
+                    for (int j = start; j < close; j++) {
+                        char k = glob.charAt(j);
+                        if (k == '-' && j > start && j + 1 < close)
+                            sb.append('-');
+                        else
+                            escape(sb, k);
+                    }
+                    sb.append(']');
+                    i = close;
+                }
+                default -> escape(sb, c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void escape(StringBuilder sb, char c) {
+        if (!Character.isLetterOrDigit(c))
+            sb.append('\\');
+        sb.append(c);
+    }
+}
@@ -0,0 +1,141 @@
+package com.khundadze.pubsub;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import com.khundadze.protocol.RespWriter;
+
+/**
+ * Channel and pattern subscriptions of subscribers of type S.
+ * A published message is encoded once per channel (and once per matching
+ * pattern) and every subscriber receives a read-only view of that frame.
+ * RESP3 subscribers get it as a push, so at most two encodings exist per frame.
+ */
+public class PubSub<S> {
+
+    private record PatternEntry<S>(GlobPattern pattern, Set<S> subscribers) {
+    }
+
+    private final HashMap<String, Set<S>> channels = new HashMap<>();
+    private final HashMap<String, PatternEntry<S>> patterns = new HashMap<>();
+
+    // reverse index, to drop everything of a subscriber on UNSUBSCRIBE / disconnect
+    private final HashMap<S, Set<String>> channelsOf = new HashMap<>();
+    private final HashMap<S, Set<String>> patternsOf = new HashMap<>();
+
+    /** Returns false when the subscriber was already subscribed */
+    public boolean subscribe(S subscriber, String channel) {
+        if (!channelsOf.computeIfAbsent(subscriber, s -> new LinkedHashSet<>()).add(channel))
+            return false;
+        channels.computeIfAbsent(channel, c -> new LinkedHashSet<>()).add(subscriber);
+        return true;
+    }
+
+    public boolean unsubscribe(S subscriber, String channel) {
+        if (!removeFrom(channelsOf, subscriber, channel))
+            return false;
+        Set<S> subscribers = channels.get(channel);
+        subscribers.remove(subscriber);
+        if (subscribers.isEmpty())
+            channels.remove(channel);
+        return true;
+    }
+
+    public boolean psubscribe(S subscriber, String pattern) {
+        if (!patternsOf.computeIfAbsent(subscriber, s -> new LinkedHashSet<>()).add(pattern))
+            return false;
+        patterns.computeIfAbsent(pattern, p -> new PatternEntry<>(new GlobPattern(p), new LinkedHashSet<>()))
+                .subscribers().add(subscriber);
+        return true;
+    }
+
+    public boolean punsubscribe(S subscriber, String pattern) {
+        if (!removeFrom(patternsOf, subscriber, pattern))
+            return false;
+        PatternEntry<S> entry = patterns.get(pattern);
+        entry.subscribers().remove(subscriber);
+        if (entry.subscribers().isEmpty())
+            patterns.remove(pattern);
+        return true;
+    }
+
+    /** Channels of the subscriber, in subscription order (copy, safe to unsubscribe while iterating) */
+    public String[] channelsOf(S subscriber) {
+        Set<String> set = channelsOf.get(subscriber);
+        return set == null ? new String[0] : set.toArray(new String[0]);
+    }
+
+    public String[] patternsOf(S subscriber) {
+        Set<String> set = patternsOf.get(subscriber);
+        return set == null ? new String[0] : set.toArray(new String[0]);
+    }
+
+    /** Channels + patterns, what SUBSCRIBE & co. report back as the count */
+    public int subscriptionCount(S subscriber) {
+        Set<String> c = channelsOf.get(subscriber);
+        Set<String> p = patternsOf.get(subscriber);
+        return (c == null ? 0 : c.size()) + (p == null ? 0 : p.size());
+    }
+
+    public void unsubscribeAll(S subscriber) {
+        for (String channel : channelsOf(subscriber))
+            unsubscribe(subscriber, channel);
+        for (String pattern : patternsOf(subscriber))
+            punsubscribe(subscriber, pattern);
+    }
+
+    /** Delivers the message to every matching subscriber, returns how many received it */
+    public int publish(String channel, Object message, BiConsumer<S, ByteBuffer> deliver) {
+        return publish(channel, message, subscriber -> false, deliver);
+    }
+
+    public int publish(String channel, Object message, Predicate<S> resp3, BiConsumer<S, ByteBuffer> deliver) {
+        int receivers = 0;
+
+        Set<S> subscribers = channels.get(channel);
+        if (subscribers != null)
+            receivers += deliver(subscribers, resp3, deliver, "message", channel, message);
+
+        for (PatternEntry<S> entry : patterns.values()) {
+            if (entry.pattern().matches(channel))
+                receivers += deliver(entry.subscribers(), resp3, deliver, "pmessage", entry.pattern().glob(),
+                        channel, message);
+        }
+
+        return receivers;
+    }
+
+    public int channelCount() {
+        return channels.size();
+    }
+
+    public int patternCount() {
+        return patterns.size();
+    }
+
+    private static <S> int deliver(Set<S> subscribers, Predicate<S> resp3, BiConsumer<S, ByteBuffer> deliver,
+            Object... frameItems) {
+        ByteBuffer[] frames = new ByteBuffer[2]; // [RESP2, RESP3], encoded on first use
+        for (S subscriber : subscribers) {
+            int version = resp3.test(subscriber) ? 1 : 0;
+            if (frames[version] == null)
+                frames[version] = RespWriter.encodePush(version == 1, frameItems).asReadOnlyBuffer();
+            deliver.accept(subscriber, frames[version].duplicate());
+        }
+        return subscribers.size();
+    }
+
+    private static <S> boolean removeFrom(Map<S, Set<String>> index, S subscriber, String name) {
+        Set<String> set = index.get(subscriber);
+        if (set == null || !set.remove(name))
+            return false;
+        if (set.isEmpty())
+            index.remove(subscriber);
+        return true;
+    }
+}
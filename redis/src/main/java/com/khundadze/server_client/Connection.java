@@ -0,0 +1,64 @@
+package com.khundadze.server_client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.model.RequestDto;
+import com.khundadze.protocol.RespReader;
+
+/** Per-client state, attached to the client's SelectionKey */
+class Connection {
+
+    final SocketChannel channel;
+    SelectionKey key;
+
+    // bytes of partially received commands survive between reads
+    final RespReader reader = new RespReader(true, true);
+
+    // encoded replies and pushed messages not yet written to the socket;
+    // pub/sub frames are read-only views shared with other subscribers
+    final ArrayDeque<ByteBuffer> outbox = new ArrayDeque<>();
+
+    // switched by HELLO 3: RESP3 nulls and out-of-band push frames
+    boolean resp3;
+
+    // set by ASKING, valid for the next command only
+    boolean asking;
+
+    // commands queued since MULTI, null outside a transaction
+    List<RequestDto> queued;
+    boolean queueFailed;
+
+    // keys passed to WATCH; watchDirty is set when any of them is written
+    final HashSet<ByteString> watching = new HashSet<>();
+    boolean watchDirty;
+
+    // "ip:port" of the peer, resolved on first use
+    private String address;
+
+    Connection(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    String address() {
+        if (address == null) {
+            try {
+                SocketAddress remote = channel.getRemoteAddress();
+                address = remote instanceof InetSocketAddress inet
+                        ? inet.getAddress().getHostAddress() + ":" + inet.getPort()
+                        : String.valueOf(remote);
+            } catch (IOException e) {
+                return "?";
+            }
+        }
+        return address;
+    }
+}
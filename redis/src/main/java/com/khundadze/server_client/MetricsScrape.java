@@ -0,0 +1,49 @@
+package com.khundadze.server_client;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One HTTP request on the metrics port, attached to its SelectionKey.
+ * Only "GET /metrics" is served; the connection closes after the response.
+ */
+class MetricsScrape {
+
+    private static final int MAX_REQUEST_BYTES = 8 * 1024;
+
+    final SocketChannel channel;
+    final ByteBuffer request = ByteBuffer.allocate(MAX_REQUEST_BYTES);
+    ByteBuffer response; // null until the request headers are complete
+
+    MetricsScrape(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    /** True once the blank line ending the headers arrived, or the buffer is full */
+    boolean requestComplete() {
+        if (!request.hasRemaining())
+            return true;
+        byte[] data = request.array();
+        for (int i = 3; i < request.position(); i++) {
+            if (data[i - 3] == '\r' && data[i - 2] == '\n' && data[i - 1] == '\r' && data[i] == '\n')
+                return true;
+        }
+        return false;
+    }
+
+    boolean isMetricsRequest() {
+        String head = new String(request.array(), 0, request.position(), StandardCharsets.US_ASCII);
+        return head.startsWith("GET /metrics ") || head.startsWith("GET /metrics?");
+    }
+
+    static ByteBuffer httpResponse(String status, String contentType, String body) {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        String headers = "HTTP/1.1 " + status + "\r\n"
+                + "Content-Type: " + contentType + "\r\n"
+                + "Content-Length: " + content.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        byte[] head = headers.getBytes(StandardCharsets.US_ASCII);
+        return ByteBuffer.allocate(head.length + content.length).put(head).put(content).flip();
+    }
+}
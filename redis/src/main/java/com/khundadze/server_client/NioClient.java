@@ -3,47 +3,296 @@ package com.khundadze.server_client;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.StandardCharsets;
-import java.util.Scanner;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class NioClient {
+import com.khundadze.protocol.RespReader;
+import com.khundadze.protocol.RespWriter;
+
+/**
+ * Asynchronous client over a single connection. Commands may be sent from
+ * any thread; they are written in call order and replies complete the
+ * futures in the same order, so concurrent callers are pipelined
+ * automatically instead of waiting a round trip each.
+ */
+public class NioClient implements AutoCloseable {
 
     private static final Logger logger = Logger.getLogger(NioClient.class.getName());
 
-    public void start(final int portNumber, final Scanner scanner) {
-        try (SocketChannel clientChannel = SocketChannel.open()) {
-
-            clientChannel.connect(new InetSocketAddress("localhost", portNumber));
-            logger.log(Level.INFO, "Client connected to port {0}", portNumber);
-
-            while (true) {
-                // 1️⃣ Read user input
-                System.out.print("> ");
-                String message = scanner.nextLine().trim();
-                if (message.equalsIgnoreCase("exit"))
-                    break;
-
-                // 2️⃣ Send to server
-                ByteBuffer writeBuffer = ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8));
-                clientChannel.write(writeBuffer);
-
-                // 3️⃣ Read response from server
-                ByteBuffer readBuffer = ByteBuffer.allocate(1024);
-                int bytesRead = clientChannel.read(readBuffer);
-                if (bytesRead > 0) {
-                    readBuffer.flip();
-                    byte[] data = new byte[readBuffer.limit()];
-                    readBuffer.get(data);
-                    String response = new String(data, StandardCharsets.UTF_8);
-                    System.out.println("Server: " + response);
-                }
+    // near-cache placeholders: a GET is in flight / the server replied nil
+    private static final Object NIL = new Object();
+
+    private final String host;
+    private final int port;
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final Thread ioThread;
+
+    private final RespReader reader = new RespReader();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(16 * 1024);
+
+    // guarded by 'this': encoded commands not yet written, and futures waiting for replies
+    private final ArrayDeque<ByteBuffer> outgoing = new ArrayDeque<>();
+    private final ArrayDeque<CompletableFuture<Object>> pending = new ArrayDeque<>();
+    private boolean closed;
+
+    // GET replies served locally until the server pushes an invalidation, null when disabled
+    private final ConcurrentHashMap<String, Object> nearCache;
+
+    private volatile Consumer<RespReader.Push> pushListener = push -> {
+    };
+
+    public NioClient(String host, int port) throws IOException {
+        this(host, port, false);
+    }
+
+    /** With nearCache the connection switches to RESP3 and enables CLIENT TRACKING */
+    public NioClient(String host, int port, boolean nearCache) throws IOException {
+        this(host, port, nearCache, false);
+    }
+
+    /**
+     * Returns without waiting for the connection: it is made on the I/O
+     * thread, commands called meanwhile are sent once it is up, and fail
+     * with the IOException if it can't be made. For callers on an event
+     * loop, which must not block on connect.
+     */
+    public static NioClient connectInBackground(String host, int port) throws IOException {
+        return new NioClient(host, port, false, true);
+    }
+
+    private NioClient(String host, int port, boolean nearCache, boolean inBackground) throws IOException {
+        this.host = host;
+        this.port = port;
+        this.channel = inBackground ? SocketChannel.open() : SocketChannel.open(new InetSocketAddress(host, port));
+        this.channel.configureBlocking(false);
+        this.selector = Selector.open();
+        this.channel.register(selector, inBackground ? SelectionKey.OP_CONNECT : SelectionKey.OP_READ);
+        this.nearCache = nearCache ? new ConcurrentHashMap<>() : null;
+
+        this.ioThread = new Thread(this::ioLoop, "nio-client-" + host + ":" + port);
+        this.ioThread.setDaemon(true);
+        this.ioThread.start();
+        if (!inBackground)
+            logger.log(Level.INFO, "Client connected to {0}:{1}", new Object[] { host, String.valueOf(port) });
+
+        if (nearCache) {
+            call("HELLO", "3").join();
+            call("CLIENT", "TRACKING", "ON").join();
+        }
+    }
+
+    // ------------------------ Commands ------------------------
+
+    /** Sends any command; error replies complete the future with a ServerErrorException */
+    public CompletableFuture<Object> call(Object... args) {
+        CompletableFuture<Object> reply = new CompletableFuture<>();
+        ByteBuffer frame = RespWriter.encodeCommand(args);
+        synchronized (this) {
+            if (closed) {
+                reply.completeExceptionally(new IOException("Client is closed"));
+                return reply;
             }
+            outgoing.add(frame);
+            pending.add(reply);
+        }
+        selector.wakeup();
+        return reply;
+    }
+
+    public CompletableFuture<Object> get(String key) {
+        if (nearCache == null)
+            return call("GET", key);
+
+        Object cached = nearCache.get(key);
+        if (cached != null && !(cached instanceof InFlight))
+            return CompletableFuture.completedFuture(cached == NIL ? null : cached);
+
+        // an invalidation that overtakes the reply removes the marker, so a stale reply isn't cached
+        InFlight marker = new InFlight();
+        nearCache.put(key, marker);
+        return call("GET", key).thenApply(value -> {
+            nearCache.replace(key, marker, value == null ? NIL : value);
+            return value;
+        });
+    }
+
+    public CompletableFuture<Object> set(String key, Object value, double score) {
+        return call("SET", key, value, score);
+    }
+
+    public CompletableFuture<Object> set(String key, Object value) {
+        return call("SET", key, value);
+    }
 
+    public CompletableFuture<Object> del(String key) {
+        return call("DEL", key);
+    }
+
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<List<Object>> keys() {
+        return call("KEYS").thenApply(reply -> (List<Object>) reply);
+    }
+
+    public CompletableFuture<Object> publish(String channel, String message) {
+        return call("PUBLISH", channel, message);
+    }
+
+    /** Receives pushes other than invalidations (pub/sub messages on RESP3), on the I/O thread */
+    public void onPush(Consumer<RespReader.Push> listener) {
+        this.pushListener = listener;
+    }
+
+    public int pendingReplies() {
+        synchronized (this) {
+            return pending.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+        }
+        selector.wakeup();
+        try {
+            ioThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ------------------------ I/O thread ------------------------
+
+    private void ioLoop() {
+        IOException failure = null;
+        try {
+            SelectionKey key = channel.keyFor(selector);
+            if (!channel.isConnected())
+                finishConnect(key);
+            while (!isClosed()) {
+                writeOutgoing(key);
+                selector.select();
+                if (key.isReadable())
+                    readReplies();
+                selector.selectedKeys().clear();
+            }
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            failure = e;
+            logger.log(Level.WARNING, "Connection lost: {0}", e.getMessage());
+        } finally {
+            shutdown(failure != null ? failure : new IOException("Client is closed"));
         }
     }
+
+    /** Background connect: resolves and connects here, so the caller never waits */
+    private void finishConnect(SelectionKey key) throws IOException {
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        if (address.isUnresolved())
+            throw new IOException("Unknown host " + host);
+        boolean connected = channel.connect(address);
+        while (!connected && !isClosed()) {
+            selector.select();
+            selector.selectedKeys().clear();
+            connected = key.isConnectable() && channel.finishConnect();
+        }
+        if (connected)
+            logger.log(Level.INFO, "Client connected to {0}:{1}", new Object[] { host, String.valueOf(port) });
+    }
+
+    private void writeOutgoing(SelectionKey key) throws IOException {
+        ByteBuffer[] batch;
+        synchronized (this) {
+            batch = outgoing.toArray(new ByteBuffer[0]);
+        }
+        if (batch.length > 0) {
+            // one gathering write for everything queued since the last turn
+            channel.write(batch);
+            synchronized (this) {
+                while (!outgoing.isEmpty() && !outgoing.peek().hasRemaining())
+                    outgoing.poll();
+            }
+        }
+        boolean more;
+        synchronized (this) {
+            more = !outgoing.isEmpty();
+        }
+        key.interestOps(more ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void readReplies() throws IOException {
+        readBuffer.clear();
+        int bytesRead = channel.read(readBuffer);
+        if (bytesRead < 0)
+            throw new IOException("Server closed the connection");
+        readBuffer.flip();
+        reader.feed(readBuffer);
+
+        while (reader.hasNext()) {
+            Object frame = reader.next();
+            if (frame instanceof RespReader.Push push) {
+                handlePush(push);
+                continue;
+            }
+
+            CompletableFuture<Object> reply;
+            synchronized (this) {
+                reply = pending.poll();
+            }
+            if (reply == null) {
+                logger.log(Level.WARNING, "Unexpected reply: {0}", frame);
+            } else if (frame instanceof RespReader.ErrorReply error) {
+                reply.completeExceptionally(new ServerErrorException(error.message()));
+            } else {
+                reply.complete(frame);
+            }
+        }
+    }
+
+    private void handlePush(RespReader.Push push) {
+        if (!push.kind().equals("invalidate") || nearCache == null) {
+            pushListener.accept(push);
+            return;
+        }
+        // a null key list means the whole keyspace was flushed
+        if (push.items().size() < 2 || !(push.items().get(1) instanceof List<?> keys))
+            nearCache.clear();
+        else
+            keys.forEach(nearCache::remove);
+    }
+
+    private void shutdown(IOException cause) {
+        CompletableFuture<?>[] orphans;
+        synchronized (this) {
+            closed = true;
+            orphans = pending.toArray(new CompletableFuture<?>[0]);
+            pending.clear();
+            outgoing.clear();
+        }
+        for (CompletableFuture<?> orphan : orphans)
+            orphan.completeExceptionally(cause);
+        try {
+            selector.close();
+            channel.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to close connection", e);
+        }
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private static final class InFlight {
+    }
 }
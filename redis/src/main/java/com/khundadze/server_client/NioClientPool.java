@@ -0,0 +1,108 @@
+package com.khundadze.server_client;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connections to one server, in two separate sets. Plain commands share
+ * a fixed set round-robin (each one pipelines on its own); MULTI/WATCH or
+ * blocking work borrows a connection from the exclusive set, opened on
+ * demand, and gives it back with release(). A borrowed connection is
+ * never handed out by next(), so no other caller's command can land in
+ * its transaction.
+ */
+public class NioClientPool implements AutoCloseable {
+
+    private final String host;
+    private final int port;
+    private final boolean nearCache;
+
+    private final NioClient[] shared;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final int maxExclusive;
+    private final AtomicInteger exclusiveOpened = new AtomicInteger();
+    private final ConcurrentLinkedQueue<NioClient> exclusive = new ConcurrentLinkedQueue<>(); // every one opened
+    private final ArrayBlockingQueue<NioClient> idle; // exclusive ones not borrowed right now
+
+    public NioClientPool(String host, int port, int size) throws IOException {
+        this(host, port, size, false);
+    }
+
+    /** size shared connections, and up to size exclusive ones */
+    public NioClientPool(String host, int port, int size, boolean nearCache) throws IOException {
+        this(host, port, size, size, nearCache);
+    }
+
+    public NioClientPool(String host, int port, int sharedSize, int maxExclusive, boolean nearCache)
+            throws IOException {
+        if (sharedSize <= 0 || maxExclusive < 0)
+            throw new IllegalArgumentException("Illegal pool size: " + sharedSize + " shared, " + maxExclusive
+                    + " exclusive");
+        this.host = host;
+        this.port = port;
+        this.nearCache = nearCache;
+        this.maxExclusive = maxExclusive;
+        this.idle = new ArrayBlockingQueue<>(Math.max(maxExclusive, 1));
+        shared = new NioClient[sharedSize];
+        try {
+            for (int i = 0; i < sharedSize; i++)
+                shared[i] = new NioClient(host, port, nearCache);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /** A connection to pipeline on, shared with other callers */
+    public NioClient next() {
+        return shared[Math.floorMod(next.getAndIncrement(), shared.length)];
+    }
+
+    /**
+     * Exclusive use, for connection-scoped state like MULTI or WATCH: an
+     * idle exclusive connection, a new one while fewer than maxExclusive
+     * are open, otherwise waits for a release().
+     */
+    public NioClient borrow() throws IOException, InterruptedException {
+        NioClient client = idle.poll();
+        if (client != null)
+            return client;
+        if (exclusiveOpened.getAndUpdate(n -> n < maxExclusive ? n + 1 : n) < maxExclusive) {
+            try {
+                client = new NioClient(host, port, nearCache);
+            } catch (IOException e) {
+                exclusiveOpened.decrementAndGet();
+                throw e;
+            }
+            exclusive.add(client);
+            return client;
+        }
+        if (maxExclusive == 0)
+            throw new IllegalStateException("Pool has no exclusive connections");
+        return idle.take();
+    }
+
+    public void release(NioClient client) {
+        if (!exclusive.contains(client))
+            throw new IllegalArgumentException("Not a borrowed connection of this pool");
+        idle.offer(client);
+    }
+
+    /** Shared connections */
+    public int size() {
+        return shared.length;
+    }
+
+    @Override
+    public void close() {
+        for (NioClient client : shared) {
+            if (client != null)
+                client.close();
+        }
+        for (NioClient client : exclusive)
+            client.close();
+    }
+}
@@ -7,13 +7,33 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.khundadze.cluster.ClusterNode;
+import com.khundadze.cluster.ClusterState;
+import com.khundadze.cluster.HashSlot;
+import com.khundadze.cluster.SlotMigrator;
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.data_structures.RedisSet;
 import com.khundadze.data_structures.ZSet;
+import com.khundadze.lazyfree.LazyFree;
+import com.khundadze.protocol.RespProtocolException;
+import com.khundadze.protocol.RespWriter;
+import com.khundadze.pubsub.PubSub;
+import com.khundadze.stats.BigKeys;
+import com.khundadze.stats.HotKeys;
+import com.khundadze.stats.ServerStats;
+import com.khundadze.stats.SlowLog;
+import com.khundadze.stats.StatsFormat;
+import com.khundadze.tracking.ClientTracking;
 
 import com.khundadze.model.*;
 
@@ -23,18 +43,77 @@ public class NioServer {
 
     private static final Logger logger = Logger.getLogger(NioServer.class.getName());
 
-    HashSet<SocketChannel> clients = null;
+    private static final ResponseDto WRONGTYPE = new ResponseDto(ServerType.SERVER_ERROR,
+            "WRONGTYPE Operation against a key holding the wrong kind of value");
+
+    private static final ByteString SET_TYPE = ByteString.of("SET");
+    private static final ByteString ZSET_TYPE = ByteString.of("ZSET");
+
+    HashSet<Connection> clients = null;
+
+    // shared by all connections, the event loop reads one socket at a time
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(16 * 1024);
 
     ZSet<Object> zs;
 
+    // key -> connections WATCHing it, marked dirty on every write to the key
+    private final HashMap<ByteString, HashSet<Connection>> watchedKeys = new HashMap<>();
+
+    private final PubSub<Connection> pubsub = new PubSub<>();
+
+    private final ClientTracking<Connection> tracking = new ClientTracking<>();
+
+    private final ServerStats stats = new ServerStats();
+
+    private final SlowLog slowlog;
+
+    // sampled key accesses for HOTKEYS, and the incremental keyspace walk behind BIGKEYS
+    private final HotKeys hotkeys;
+    private final BigKeys bigkeys = new BigKeys();
+
+    // time spent in commands run by the current call() (EXEC's queue), so it isn't counted twice
+    private long nestedNanos;
+
+    // deletion policy and lazyfree accounting; the GC reclaims deleted values
+    private final LazyFree lazyfree;
+
+    // null when running standalone
+    private final ClusterState cluster;
+    private final SlotMigrator migrator;
+
+    // set by start(), the migrator wakes the loop up from its link's thread
+    private volatile Selector selector;
+
     public NioServer() {
+        this(null);
+    }
+
+    public NioServer(ClusterState cluster) {
+        this(cluster, new SlowLog(10_000, 128), new LazyFree(), new HotKeys());
+    }
+
+    public NioServer(ClusterState cluster, SlowLog slowlog, LazyFree lazyfree, HotKeys hotkeys) {
         clients = new HashSet<>();
+        this.slowlog = slowlog;
+        this.hotkeys = hotkeys;
+        this.lazyfree = lazyfree;
         zs = new ZSet<>();
+        this.cluster = cluster;
+        this.migrator = cluster != null
+                ? new SlotMigrator(cluster, key -> deleteKey(null, key, false), this::wakeup)
+                : null;
     }
 
     public void start(final int portNumber) {
+        start(portNumber, 0);
+    }
+
+    /** metricsPort > 0 also serves Prometheus text on http://host:metricsPort/metrics */
+    public void start(final int portNumber, final int metricsPort) {
         try (ServerSocketChannel serverChannel = ServerSocketChannel.open();
+                ServerSocketChannel metricsChannel = metricsPort > 0 ? ServerSocketChannel.open() : null;
                 Selector selector = Selector.open()) {
+            this.selector = selector;
 
             // Bind server and configure non-blocking mode
             serverChannel.bind(new InetSocketAddress(portNumber));
@@ -43,9 +122,22 @@ public class NioServer {
 
             logger.log(Level.INFO, "Server started on port {0}", portNumber);
 
+            // scrapes are served by this loop too, so they read the stats without locking
+            if (metricsChannel != null) {
+                metricsChannel.bind(new InetSocketAddress(metricsPort));
+                metricsChannel.configureBlocking(false);
+                metricsChannel.register(selector, SelectionKey.OP_ACCEPT);
+                logger.log(Level.INFO, "Metrics on http://localhost:{0}/metrics", String.valueOf(metricsPort));
+            }
+
             while (true) {
-                if (selector.select() == 0)
-                    continue; // No ready channels
+                // don't block while a slot migration or a BIGKEYS walk can make progress
+                boolean migrating = migrator != null && migrator.hasPendingWork();
+                if (migrating || bigkeys.isRunning())
+                    selector.selectNow();
+                else
+                    selector.select();
+                long cycleStart = System.nanoTime();
 
                 Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
                 while (keyIterator.hasNext()) {
@@ -55,19 +147,43 @@ public class NioServer {
                     if (key.isAcceptable() && key.channel() instanceof ServerSocketChannel ssc) {
                         SocketChannel client = ssc.accept();
                         client.configureBlocking(false);
-                        client.register(selector, SelectionKey.OP_READ);
-                        clients.add(client);
+                        if (ssc == metricsChannel) {
+                            client.register(selector, SelectionKey.OP_READ, new MetricsScrape(client));
+                        } else {
+                            Connection connection = new Connection(client);
+                            connection.key = client.register(selector, SelectionKey.OP_READ, connection);
+                            clients.add(connection);
+                            stats.connectionAccepted();
 
-                        logger.log(Level.INFO, "Client connected: {0}", client.getRemoteAddress());
+                            logger.log(Level.INFO, "Client connected: {0}", client.getRemoteAddress());
+                        }
                     }
 
                     // 2️⃣ Handle readable client
-                    if (key.isReadable() && key.channel() instanceof SocketChannel client) {
-                        handleClient(client);
+                    if (key.isReadable() && key.attachment() instanceof Connection connection) {
+                        handleClient(connection);
                     }
 
+                    // 3️⃣ Drain replies that didn't fit into the socket buffer
+                    if (key.isValid() && key.isWritable() && key.attachment() instanceof Connection connection) {
+                        flush(connection);
+                    }
+
+                    // Prometheus scrape on the metrics port
+                    if (key.isValid() && key.attachment() instanceof MetricsScrape scrape)
+                        handleScrape(key, scrape);
+
                     keyIterator.remove(); // Remove the processed key
                 }
+
+                // 4️⃣ Move the next batch of keys of a migrating slot
+                if (migrating)
+                    migrator.step(zs);
+
+                // 5️⃣ Walk the next buckets for BIGKEYS
+                bigkeys.step(zs);
+
+                stats.eventLoopCycle(System.nanoTime() - cycleStart);
             }
 
         } catch (IOException e) {
@@ -75,7 +191,7 @@ public class NioServer {
         } finally {
             clients.forEach(client -> {
                 try {
-                    client.close();
+                    client.channel.close();
                 } catch (IOException e) {
                     throw new RuntimeException("Failed to close client channel");
                 }
@@ -85,67 +201,402 @@ public class NioServer {
 
     // ------------------------ Helper methods ------------------------
 
-    private void handleClient(SocketChannel client) {
+    private void wakeup() {
+        Selector current = selector;
+        if (current != null)
+            current.wakeup();
+    }
+
+    private void handleClient(Connection connection) {
         try {
-            RequestDto request = readRequest(client);
+            readBuffer.clear();
+            int bytesRead = connection.channel.read(readBuffer);
+            if (bytesRead < 0)
+                throw new IOException("Connection closed by client");
+            stats.bytesRead(bytesRead);
+            readBuffer.flip();
+            connection.reader.feed(readBuffer);
+
+            // one read may carry several pipelined commands, or only part of one
+            while (connection.reader.hasNext()) {
+                if (!(connection.reader.next() instanceof List<?> frame) || frame.isEmpty())
+                    continue;
 
-            if (request != null) {
-                ResponseDto response = handleRequest(request);
+                ResponseDto response;
+                try {
+                    response = handleRequest(connection, readRequest(frame));
+                } catch (IllegalArgumentException e) { // unknown command or malformed score
+                    stats.unknownCommand();
+                    response = new ResponseDto(ServerType.SERVER_ERROR, "Unknown command or syntax error");
+                    if (connection.queued != null) // EXEC has to answer EXECABORT, like Redis
+                        connection.queueFailed = true;
+                } catch (RuntimeException e) { // a bug in one command must not take down every connection
+                    logger.log(Level.WARNING, "Request failed", e);
+                    response = new ResponseDto(ServerType.SERVER_ERROR, "Internal error");
+                    if (connection.queued != null)
+                        connection.queueFailed = true;
+                }
+                if (response != null && response.type() == ServerType.SERVER_ERROR)
+                    stats.errorReply();
 
-                sendResponse(client, response);
+                // null when the command already queued its own replies (SUBSCRIBE & co.)
+                if (response != null)
+                    sendResponse(connection, response);
             }
+        } catch (RespProtocolException e) { // can't find the next command boundary anymore
+            sendResponse(connection, new ResponseDto(ServerType.SERVER_ERROR, "Protocol error"));
+            flush(connection);
+            disconnectClient(connection);
+            return;
         } catch (IOException e) {
-            disconnectClient(client);
+            disconnectClient(connection);
+            return;
         }
+
+        // all replies of this read leave in as few writes as possible
+        flush(connection);
     }
 
-    private void disconnectClient(SocketChannel client) {
+    private void disconnectClient(Connection connection) {
+        SocketChannel client = connection.channel;
         try {
             logger.log(Level.INFO, "Client disconnected: {0}", client.getRemoteAddress());
-            clients.remove(client);
+            unwatchAll(connection);
+            pubsub.unsubscribeAll(connection);
+            tracking.disable(connection);
+            clients.remove(connection);
             client.close();
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
     }
 
-    private RequestDto readRequest(SocketChannel client) throws IOException {
-        ByteBuffer buffer = ByteBuffer.allocate(1024);
-        int bytesRead = client.read(buffer);
+    /** Words stay the ByteStrings the reader cut out of the socket buffer, the value is stored as is */
+    private RequestDto readRequest(List<?> frame) {
+        Command command = Command.of(word(frame.get(0)));
+        ByteString[] args = new ByteString[frame.size() - 1];
+        for (int i = 0; i < args.length; i++)
+            args[i] = word(frame.get(i + 1));
+        if (!command.isKeyed())
+            return new RequestDto(command, null, null, null, args);
 
-        if (bytesRead <= 0)
-            return null; // nothing or disconnected
+        ByteString name = args.length > 0 ? args[0] : null;
+        Object value = args.length > 1 ? args[1] : null;
+        Double score = !command.hasScore() ? null : args.length > 2 ? Double.parseDouble(args[2].toString()) : 1.0;
 
-        buffer.flip();
-        byte[] data = new byte[buffer.limit()];
-        buffer.get(data);
+        return new RequestDto(command, name, value, score, args);
+    }
 
-        String message = new String(data).trim();
-        String[] parts = message.split(" ", 4);
+    /** Clients send arrays of bulk strings; anything else (integers, nested frames) is taken by its text */
+    private static ByteString word(Object item) {
+        return item instanceof ByteString bytes ? bytes : ByteString.of(String.valueOf(item));
+    }
+
+    /** Admin commands parse their options as text; keys and values never go through here */
+    private static String[] text(ByteString[] args) {
+        String[] out = new String[args.length];
+        for (int i = 0; i < args.length; i++)
+            out[i] = args[i].toString();
+        return out;
+    }
 
-        Command command = Command.valueOf(parts[0]);
-        String name = parts.length > 1 ? parts[1] : null;
-        Object value = parts.length > 2 ? parts[2] : null;
-        Double score = parts.length > 3 ? Double.parseDouble(parts[3]) : 1.0;
+    private ResponseDto handleRequest(Connection connection, RequestDto request) {
+        boolean asking = connection.asking;
+        connection.asking = false;
+
+        // a subscribed RESP2 connection only receives messages until it unsubscribes
+        if (!connection.resp3 && !request.command().isAllowedWhileSubscribed()
+                && pubsub.subscriptionCount(connection) > 0) {
+            stats.commands().reject(request.command());
+            return new ResponseDto(ServerType.SERVER_ERROR, "Can't execute '" + request.command()
+                    + "': only (P)SUBSCRIBE / (P)UNSUBSCRIBE / PING are allowed in this context");
+        }
 
-        return new RequestDto(command, name, value, score);
+        if (!request.command().acceptsArgCount(request.args().length)) {
+            stats.commands().reject(request.command());
+            if (connection.queued != null)
+                connection.queueFailed = true;
+            return new ResponseDto(ServerType.SERVER_ERROR, "Wrong number of arguments for " + request.command());
+        }
+
+        ResponseDto redirect = route(request, asking);
+
+        // inside MULTI everything but the transaction commands is queued for EXEC
+        if (connection.queued != null && !request.command().isTransactionControl()) {
+            if (redirect != null) {
+                stats.commands().reject(request.command());
+                connection.queueFailed = true;
+                return redirect;
+            }
+            connection.queued.add(request);
+            return new ResponseDto(ServerType.SERVER_STRING, "QUEUED");
+        }
+
+        if (redirect != null) {
+            stats.commands().reject(request.command());
+            return redirect;
+        }
+
+        return call(connection, request);
     }
 
-    private ResponseDto handleRequest(RequestDto request) {
+    /** execute() plus per-command stats, for direct and EXEC'd commands alike */
+    private ResponseDto call(Connection connection, RequestDto request) {
+        if (request.command().isKeyed() && request.name() != null) {
+            if (request.command().isMultiKey()) {
+                ByteString[] args = request.args();
+                for (int i = 0; i < args.length; i += request.command().keyStep())
+                    hotkeys.access(args[i]);
+            } else {
+                hotkeys.access(request.name());
+            }
+        }
+
+        long enclosingNested = nestedNanos;
+        nestedNanos = 0;
+        long start = System.nanoTime();
+        ResponseDto response;
+        try {
+            response = execute(connection, request);
+        } catch (IllegalArgumentException e) { // a malformed number among the arguments
+            response = new ResponseDto(ServerType.SERVER_ERROR, "Syntax error or value out of range");
+        } catch (RuntimeException e) { // fails this command only, not the event loop
+            logger.log(Level.WARNING, "Command " + request.command() + " failed", e);
+            response = new ResponseDto(ServerType.SERVER_ERROR, "Internal error executing " + request.command());
+        }
+        long elapsed = System.nanoTime() - start;
+        // EXEC is charged its own overhead only, its queued commands are recorded on their own
+        long own = elapsed - nestedNanos;
+        nestedNanos = enclosingNested + elapsed;
+        stats.commands().record(request.command(), own,
+                response != null && response.type() == ServerType.SERVER_ERROR);
+
+        // EXEC itself is skipped, the slow commands inside it are logged on their own
+        if (slowlog.isSlow(elapsed) && request.command() != Command.EXEC)
+            slowlog.add(request.command().name(), request.args(), elapsed, connection.address());
+        return response;
+    }
+
+    private ResponseDto route(RequestDto request, boolean asking) {
+        if (cluster == null || !request.command().isKeyed() || request.name() == null)
+            return null;
+
+        if (request.command().isMultiKey()) {
+            int slot = HashSlot.slotOf(request.name());
+            ByteString[] args = request.args();
+            for (int i = 0; i < args.length; i += request.command().keyStep()) {
+                if (HashSlot.slotOf(args[i]) != slot)
+                    return new ResponseDto(ServerType.SERVER_ERROR,
+                            "CROSSSLOT Keys in request don't hash to the same slot");
+            }
+        }
+
+        String redirect = request.command() == Command.RESTORE
+                ? routeRestore(request.name())
+                : cluster.route(request.name(), zs.get(request.name()) != null, asking);
+        return redirect != null ? new ResponseDto(ServerType.SERVER_ERROR, redirect) : null;
+    }
+
+    private ResponseDto execute(Connection connection, RequestDto request) {
         switch (request.command()) {
-            case SET -> {
-                zs.add(request.name(), request.score(), request.value());
+            case SET, RESTORE -> {
+                Object value = request.value();
+                if (request.command() == Command.RESTORE && request.args().length > 3) {
+                    ByteString type = request.args()[3].toUpperCaseAscii();
+                    if (type.equals(SET_TYPE)) { // a set key, from SlotMigrator
+                        RedisSet set = new RedisSet();
+                        for (int i = 4; i < request.args().length; i++)
+                            set.add(request.args()[i]);
+                        value = set;
+                    } else if (type.equals(ZSET_TYPE)) { // RESTORE name "" score ZSET member score ...
+                        List<ZSet.Entry<Object>> members = new ArrayList<>();
+                        for (int i = 4; i + 1 < request.args().length; i += 2)
+                            members.add(new ZSet.Entry<>(request.args()[i],
+                                    Double.parseDouble(request.args()[i + 1].toString()), null));
+                        ZSet<Object> zset = new ZSet<>();
+                        zset.addAll(members);
+                        value = zset;
+                    }
+                }
+                Object previous = zs.add(request.name(), request.score(), value);
+                if (previous != null && lazyfree.lazyServerDel())
+                    lazyfree.recordLazyFreed(previous);
+                if (cluster != null)
+                    cluster.keyAdded(request.name());
+                signalModifiedKey(request.name(), connection);
                 return new ResponseDto(ServerType.SERVER_STRING, "OK");
             }
-            case DEL -> {
-                zs.remove(request.name());
-                return new ResponseDto(ServerType.SERVER_STRING, "OK");
+            case DEL, UNLINK -> {
+                int deleted = 0;
+                for (ByteString key : request.args()) {
+                    if (deleteKey(connection, key, request.command() == Command.UNLINK))
+                        deleted++;
+                }
+                return new ResponseDto(ServerType.SERVER_INTEGER, deleted);
+            }
+            case MGET -> {
+                List<Object> values = new ArrayList<>(request.args().length);
+                for (ByteString key : request.args()) {
+                    tracking.trackRead(connection, key);
+                    ZSet.ZNode<Object> node = zs.get(key);
+                    // like Redis, keys of another type read as nil rather than failing the whole batch
+                    values.add(node != null && isString(node.value) ? node.value : null);
+                }
+                return new ResponseDto(ServerType.SERVER_ARRAY, values);
+            }
+            case MSET, MSETNX -> {
+                return handleMset(connection, request.command(), request.args());
+            }
+            case ZADD -> {
+                return handleZadd(connection, request.args());
+            }
+            case ZMSCORE -> {
+                return handleZmscore(connection, request.args());
+            }
+            case FLUSHALL -> {
+                return flushAll(text(request.args()));
             }
             case GET -> {
-                return new ResponseDto(ServerType.SERVER_STRING, zs.get(request.name()));
+                tracking.trackRead(connection, request.name());
+                ZSet.ZNode<Object> node = zs.get(request.name());
+                if (node != null && !isString(node.value))
+                    return WRONGTYPE;
+                return new ResponseDto(ServerType.SERVER_STRING, node != null ? node.value : null);
+            }
+            case SADD, SREM, SISMEMBER, SMEMBERS, SCARD, SRANDMEMBER, SINTER, SUNION, SDIFF -> {
+                return handleSetCommand(connection, request.command(), request.args());
             }
             case KEYS -> {
-                return new ResponseDto(ServerType.SERVER_ARRAY, Arrays.toString(zs.keySet()));
+                return new ResponseDto(ServerType.SERVER_ARRAY, zs.keySet());
+            }
+            case ZQUERY -> {
+                String[] args = text(request.args());
+                int offset = Integer.parseInt(args[2]);
+                int count = Integer.parseInt(args[3]);
+                if (offset < 0 || count < 0)
+                    return new ResponseDto(ServerType.SERVER_ERROR, "ZQUERY offset and count must not be negative");
+                List<Object> reply = new ArrayList<>();
+                for (ZSet.ZNode<Object> node : zs.range(Double.parseDouble(args[0]), request.args()[1], offset, count)) {
+                    reply.add(node.name);
+                    reply.add(Double.toString(node.score));
+                }
+                return new ResponseDto(ServerType.SERVER_ARRAY, reply);
+            }
+            case PING -> {
+                return new ResponseDto(ServerType.SERVER_STRING, request.args().length > 0 ? request.args()[0] : "PONG");
+            }
+            case SUBSCRIBE, PSUBSCRIBE -> {
+                if (request.args().length == 0)
+                    return new ResponseDto(ServerType.SERVER_ERROR,
+                            "Wrong number of arguments for " + request.command());
+                boolean pattern = request.command() == Command.PSUBSCRIBE;
+                for (String name : text(request.args())) {
+                    if (pattern)
+                        pubsub.psubscribe(connection, name);
+                    else
+                        pubsub.subscribe(connection, name);
+                    send(connection, RespWriter.encodePush(connection.resp3, pattern ? "psubscribe" : "subscribe",
+                            name, pubsub.subscriptionCount(connection)));
+                }
+                return null;
+            }
+            case UNSUBSCRIBE, PUNSUBSCRIBE -> {
+                boolean pattern = request.command() == Command.PUNSUBSCRIBE;
+                String reply = pattern ? "punsubscribe" : "unsubscribe";
+                String[] names = request.args().length > 0 ? text(request.args())
+                        : pattern ? pubsub.patternsOf(connection) : pubsub.channelsOf(connection);
+                if (names.length == 0)
+                    send(connection, RespWriter.encodePush(connection.resp3, reply, null,
+                            pubsub.subscriptionCount(connection)));
+                for (String name : names) {
+                    if (pattern)
+                        pubsub.punsubscribe(connection, name);
+                    else
+                        pubsub.unsubscribe(connection, name);
+                    send(connection, RespWriter.encodePush(connection.resp3, reply, name,
+                            pubsub.subscriptionCount(connection)));
+                }
+                return null;
+            }
+            case PUBLISH -> {
+                if (request.args().length != 2)
+                    return new ResponseDto(ServerType.SERVER_ERROR, "Wrong number of arguments for PUBLISH");
+                int receivers = pubsub.publish(request.args()[0].toString(), request.args()[1], c -> c.resp3, this::send);
+                return new ResponseDto(ServerType.SERVER_INTEGER, receivers);
+            }
+            case HELLO -> {
+                if (request.args().length > 0) {
+                    switch (request.args()[0].toString()) {
+                        case "2" -> {
+                            connection.resp3 = false;
+                            tracking.disable(connection); // invalidations need RESP3 pushes
+                        }
+                        case "3" -> connection.resp3 = true;
+                        default -> {
+                            return new ResponseDto(ServerType.SERVER_ERROR,
+                                    "NOPROTO unsupported protocol version");
+                        }
+                    }
+                }
+                return new ResponseDto(ServerType.SERVER_ARRAY,
+                        List.of("server", "redis", "proto", connection.resp3 ? 3 : 2));
+            }
+            case CLIENT -> {
+                return handleClientCommand(connection, request.args());
+            }
+            case ASKING -> {
+                if (cluster == null)
+                    return new ResponseDto(ServerType.SERVER_ERROR, "This instance has cluster support disabled");
+                connection.asking = true;
+                return new ResponseDto(ServerType.SERVER_STRING, "OK");
+            }
+            case CLUSTER -> {
+                return handleCluster(request.args());
+            }
+            case INFO -> {
+                return new ResponseDto(ServerType.SERVER_STRING, StatsFormat.info(stats, gauges(), text(request.args())));
+            }
+            case LATENCY -> {
+                return handleLatency(text(request.args()));
+            }
+            case SLOWLOG -> {
+                return handleSlowlog(text(request.args()));
+            }
+            case HOTKEYS -> {
+                return handleHotkeys(text(request.args()));
+            }
+            case BIGKEYS -> {
+                return handleBigkeys(text(request.args()));
+            }
+            case MULTI -> {
+                if (connection.queued != null)
+                    return new ResponseDto(ServerType.SERVER_ERROR, "MULTI calls can not be nested");
+                connection.queued = new ArrayList<>();
+                connection.queueFailed = false;
+                return new ResponseDto(ServerType.SERVER_STRING, "OK");
+            }
+            case EXEC -> {
+                return exec(connection);
+            }
+            case DISCARD -> {
+                if (connection.queued == null)
+                    return new ResponseDto(ServerType.SERVER_ERROR, "DISCARD without MULTI");
+                connection.queued = null;
+                unwatchAll(connection);
+                return new ResponseDto(ServerType.SERVER_STRING, "OK");
+            }
+            case WATCH -> {
+                if (connection.queued != null)
+                    return new ResponseDto(ServerType.SERVER_ERROR, "WATCH inside MULTI is not allowed");
+                if (request.args().length == 0)
+                    return new ResponseDto(ServerType.SERVER_ERROR, "Wrong number of arguments for WATCH");
+                for (ByteString key : request.args())
+                    watch(connection, key);
+                return new ResponseDto(ServerType.SERVER_STRING, "OK");
+            }
+            case UNWATCH -> {
+                unwatchAll(connection);
+                return new ResponseDto(ServerType.SERVER_STRING, "OK");
             }
             default -> {
                 return new ResponseDto(ServerType.SERVER_ERROR, "Unknown command");
@@ -153,9 +604,658 @@ public class NioServer {
         }
     }
 
-    private void sendResponse(SocketChannel client, ResponseDto response) throws IOException {
-        ByteBuffer buffer = ByteBuffer.wrap(response.value().toString().getBytes());
-        client.write(buffer); // keep connection open
+    /** Runs the queued commands back to back; the single-threaded loop makes this atomic */
+    private ResponseDto exec(Connection connection) {
+        List<RequestDto> queued = connection.queued;
+        if (queued == null)
+            return new ResponseDto(ServerType.SERVER_ERROR, "EXEC without MULTI");
+
+        connection.queued = null;
+        boolean aborted = connection.watchDirty;
+        unwatchAll(connection);
+
+        if (connection.queueFailed)
+            return new ResponseDto(ServerType.SERVER_ERROR, "EXECABORT Transaction discarded because of previous errors");
+        if (aborted)
+            return new ResponseDto(ServerType.SERVER_NIL, null); // a WATCHed key changed
+
+        List<ResponseDto> results = new ArrayList<>(queued.size());
+        for (RequestDto request : queued) {
+            ResponseDto redirect = route(request, false);
+            if (redirect != null)
+                stats.commands().reject(request.command());
+            results.add(redirect != null ? redirect : call(connection, request));
+        }
+        return new ResponseDto(ServerType.SERVER_ARRAY, results);
+    }
+
+    /** LATENCY HISTOGRAM [command ...] */
+    private ResponseDto handleLatency(String[] args) {
+        if (args.length == 0 || !args[0].equalsIgnoreCase("HISTOGRAM"))
+            return new ResponseDto(ServerType.SERVER_ERROR, "Unknown LATENCY subcommand or wrong number of arguments");
+
+        List<Command> commands = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            try {
+                commands.add(Command.valueOf(args[i].toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                // unknown names are skipped, like Redis does
+            }
+        }
+        if (args.length > 1 && commands.isEmpty())
+            return new ResponseDto(ServerType.SERVER_ARRAY, List.of());
+        return new ResponseDto(ServerType.SERVER_ARRAY, StatsFormat.latencyHistogram(stats.commands(), commands));
+    }
+
+    /** SLOWLOG GET [count] | LEN | RESET */
+    private ResponseDto handleSlowlog(String[] args) {
+        if (args.length == 0)
+            return new ResponseDto(ServerType.SERVER_ERROR, "Wrong number of arguments for SLOWLOG");
+
+        switch (args[0].toUpperCase()) {
+            case "GET" -> {
+                int count = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+                if (count < 0) // -1 returns everything, like Redis
+                    count = Integer.MAX_VALUE;
+                List<Object> reply = new ArrayList<>();
+                for (SlowLog.Entry entry : slowlog.get(count))
+                    reply.add(entry.toReply());
+                return new ResponseDto(ServerType.SERVER_ARRAY, reply);
+            }
+            case "LEN" -> {
+                return new ResponseDto(ServerType.SERVER_INTEGER, slowlog.len());
+            }
+            case "RESET" -> {
+                slowlog.reset();
+                return new ResponseDto(ServerType.SERVER_STRING, "OK");
+            }
+            default -> {
+                return new ResponseDto(ServerType.SERVER_ERROR, "Unknown SLOWLOG subcommand");
+            }
+        }
+    }
+
+    /** HOTKEYS [count] | RESET */
+    private ResponseDto handleHotkeys(String[] args) {
+        if (args.length > 1)
+            return new ResponseDto(ServerType.SERVER_ERROR, "Wrong number of arguments for HOTKEYS");
+        if (args.length == 1 && args[0].equalsIgnoreCase("RESET")) {
+            hotkeys.reset();
+            return new ResponseDto(ServerType.SERVER_STRING, "OK");
+        }
+        if (hotkeys.sampleRate() == 0)
+            return new ResponseDto(ServerType.SERVER_ERROR, "Hot key tracking is disabled (--hotkeys-sample-rate 0)");
+
+        int count = args.length == 1 ? Integer.parseInt(args[0]) : 10;
+        List<Object> reply = new ArrayList<>();
+        for (HotKeys.HotKey hot : hotkeys.top(count))
+            reply.add(List.of(hot.key(), hot.count()));
+        return new ResponseDto(ServerType.SERVER_ARRAY, reply);
+    }
+
+    /** BIGKEYS [count] | SCAN | STATUS */
+    private ResponseDto handleBigkeys(String[] args) {
+        if (args.length > 1)
+            return new ResponseDto(ServerType.SERVER_ERROR, "Wrong number of arguments for BIGKEYS");
+        String sub = args.length == 1 ? args[0].toUpperCase() : "";
+        switch (sub) {
+            case "SCAN" -> {
+                if (!bigkeys.start(zs))
+                    return new ResponseDto(ServerType.SERVER_ERROR, "A BIGKEYS scan is already in progress");
+                return new ResponseDto(ServerType.SERVER_STRING, "OK");
+            }
+            case "STATUS" -> {
+                BigKeys.Report last = bigkeys.lastReport();
+                return new ResponseDto(ServerType.SERVER_ARRAY, List.of(
+                        "running", bigkeys.isRunning() ? 1 : 0,
+                        "keys-scanned", bigkeys.isRunning() ? bigkeys.keysScanned() : 0,
+                        "last-keys-scanned", last != null ? last.keysScanned() : 0,
+                        "last-duration-ms", last != null ? last.durationMillis() : 0,
+                        "last-finished-at", last != null ? last.finishedAt() : 0));
+            }
+            default -> {
+                // the result of the last completed scan, empty before the first one
+                int count = sub.isEmpty() ? 10 : Integer.parseInt(sub);
+                BigKeys.Report last = bigkeys.lastReport();
+                List<Object> reply = new ArrayList<>();
+                for (int i = 0; last != null && i < last.biggest().size() && i < count; i++)
+                    reply.add(last.biggest().get(i).toReply());
+                return new ResponseDto(ServerType.SERVER_ARRAY, reply);
+            }
+        }
+    }
+
+    private ServerStats.Gauges gauges() {
+        long pendingOutput = 0;
+        long maxOutput = 0;
+        long queryBuffer = 0;
+        long maxQuery = 0;
+        for (Connection connection : clients) {
+            long output = 0;
+            for (ByteBuffer frame : connection.outbox)
+                output += frame.remaining();
+            pendingOutput += output;
+            maxOutput = Math.max(maxOutput, output);
+            queryBuffer += connection.reader.buffered();
+            maxQuery = Math.max(maxQuery, connection.reader.buffered());
+        }
+        return new ServerStats.Gauges(clients.size(), pendingOutput, maxOutput, queryBuffer, maxQuery, zs.size(),
+                pubsub.channelCount(), pubsub.patternCount(), tracking.trackedKeyCount(), lazyfree.freed(),
+                cluster != null);
+    }
+
+    /** Reads the HTTP request, then writes the response and closes, across as many loop turns as needed */
+    private void handleScrape(SelectionKey key, MetricsScrape scrape) {
+        try {
+            if (scrape.response == null && key.isReadable()) {
+                if (scrape.channel.read(scrape.request) < 0) {
+                    scrape.channel.close();
+                    return;
+                }
+                if (!scrape.requestComplete())
+                    return;
+                scrape.response = scrape.isMetricsRequest()
+                        ? MetricsScrape.httpResponse("200 OK", "text/plain; version=0.0.4; charset=utf-8",
+                                StatsFormat.prometheus(stats, gauges()))
+                        : MetricsScrape.httpResponse("404 Not Found", "text/plain", "Not found\n");
+            }
+            if (scrape.response != null) {
+                scrape.channel.write(scrape.response);
+                if (scrape.response.hasRemaining())
+                    key.interestOps(SelectionKey.OP_WRITE);
+                else
+                    scrape.channel.close();
+            }
+        } catch (IOException e) {
+            try {
+                scrape.channel.close();
+            } catch (IOException ignored) {
+                // already broken
+            }
+        }
+    }
+
+    /** CLIENT TRACKING ON|OFF [BCAST] [PREFIX prefix ...] [NOLOOP] */
+    private ResponseDto handleClientCommand(Connection connection, ByteString[] rawArgs) {
+        String[] args = text(rawArgs);
+        if (args.length < 2 || !args[0].equalsIgnoreCase("TRACKING"))
+            return new ResponseDto(ServerType.SERVER_ERROR, "Unknown CLIENT subcommand or wrong number of arguments");
+
+        if (args[1].equalsIgnoreCase("OFF")) {
+            tracking.disable(connection);
+            return new ResponseDto(ServerType.SERVER_STRING, "OK");
+        }
+        if (!args[1].equalsIgnoreCase("ON"))
+            return new ResponseDto(ServerType.SERVER_ERROR, "Syntax error");
+        if (!connection.resp3)
+            return new ResponseDto(ServerType.SERVER_ERROR, "Client tracking requires RESP3, send HELLO 3 first");
+
+        boolean broadcast = false;
+        boolean noLoop = false;
+        List<ByteString> prefixes = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i].toUpperCase()) {
+                case "BCAST" -> broadcast = true;
+                case "NOLOOP" -> noLoop = true;
+                case "PREFIX" -> {
+                    if (++i == args.length)
+                        return new ResponseDto(ServerType.SERVER_ERROR, "Syntax error");
+                    prefixes.add(rawArgs[i]); // prefixes match key bytes
+                }
+                default -> {
+                    return new ResponseDto(ServerType.SERVER_ERROR, "Syntax error");
+                }
+            }
+        }
+        if (!prefixes.isEmpty() && !broadcast)
+            return new ResponseDto(ServerType.SERVER_ERROR, "PREFIX option requires BCAST mode to be enabled");
+
+        tracking.enable(connection, broadcast, prefixes, noLoop);
+        return new ResponseDto(ServerType.SERVER_STRING, "OK");
+    }
+
+    private ResponseDto handleSetCommand(Connection connection, Command command, ByteString[] args) {
+        int minArgs = switch (command) {
+            case SADD, SREM, SISMEMBER -> 2;
+            default -> 1;
+        };
+        if (args.length < minArgs || (command == Command.SISMEMBER && args.length != 2)
+                || ((command == Command.SMEMBERS || command == Command.SCARD) && args.length != 1)
+                || (command == Command.SRANDMEMBER && args.length > 2))
+            return new ResponseDto(ServerType.SERVER_ERROR, "Wrong number of arguments for " + command);
+
+        ByteString key = args[0];
+        ZSet.ZNode<Object> node = zs.get(key);
+        if (node != null && !(node.value instanceof RedisSet))
+            return WRONGTYPE;
+        RedisSet set = node != null ? (RedisSet) node.value : null;
+
+        switch (command) {
+            case SADD -> {
+                if (set == null) {
+                    set = new RedisSet();
+                    zs.add(key, 1.0, set);
+                    if (cluster != null)
+                        cluster.keyAdded(key);
+                }
+                int added = 0;
+                for (int i = 1; i < args.length; i++) {
+                    if (set.add(args[i]))
+                        added++;
+                }
+                if (added > 0)
+                    signalModifiedKey(key, connection);
+                return new ResponseDto(ServerType.SERVER_INTEGER, added);
+            }
+            case SREM -> {
+                int removed = 0;
+                for (int i = 1; set != null && i < args.length; i++) {
+                    if (set.remove(args[i]))
+                        removed++;
+                }
+                if (removed > 0) {
+                    if (set.isEmpty()) // empty sets don't exist
+                        deleteKey(connection, key, false);
+                    else
+                        signalModifiedKey(key, connection);
+                }
+                return new ResponseDto(ServerType.SERVER_INTEGER, removed);
+            }
+            case SISMEMBER -> {
+                tracking.trackRead(connection, key);
+                return new ResponseDto(ServerType.SERVER_INTEGER, set != null && set.contains(args[1]) ? 1 : 0);
+            }
+            case SMEMBERS -> {
+                tracking.trackRead(connection, key);
+                return new ResponseDto(ServerType.SERVER_ARRAY, set != null ? set.members() : List.of());
+            }
+            case SCARD -> {
+                tracking.trackRead(connection, key);
+                return new ResponseDto(ServerType.SERVER_INTEGER, set != null ? set.size() : 0);
+            }
+            case SRANDMEMBER -> {
+                tracking.trackRead(connection, key);
+                if (args.length == 1)
+                    return new ResponseDto(ServerType.SERVER_STRING,
+                            set != null ? set.randomMember(ThreadLocalRandom.current()) : null);
+                long count = Long.parseLong(args[1].toString());
+                if (count < -RedisSet.MAX_RANDOM_COUNT)
+                    return new ResponseDto(ServerType.SERVER_ERROR, "value is out of range");
+                return new ResponseDto(ServerType.SERVER_ARRAY,
+                        set != null ? set.randomMembers(count, ThreadLocalRandom.current()) : List.of());
+            }
+            default -> {
+                // SINTER / SUNION / SDIFF: missing keys count as empty sets
+                List<RedisSet> sets = new ArrayList<>(args.length);
+                for (ByteString name : args) {
+                    ZSet.ZNode<Object> other = zs.get(name);
+                    if (other != null && !(other.value instanceof RedisSet))
+                        return WRONGTYPE;
+                    tracking.trackRead(connection, name);
+                    sets.add(other != null ? (RedisSet) other.value : new RedisSet());
+                }
+                RedisSet result = switch (command) {
+                    case SINTER -> RedisSet.intersect(sets);
+                    case SUNION -> RedisSet.union(sets);
+                    default -> RedisSet.difference(sets);
+                };
+                return new ResponseDto(ServerType.SERVER_ARRAY, result.members());
+            }
+        }
+    }
+
+    /** MSET key value [key value ...], MSETNX sets nothing when any key exists; one bulk add either way */
+    private ResponseDto handleMset(Connection connection, Command command, ByteString[] args) {
+        if (args.length == 0 || args.length % 2 != 0)
+            return new ResponseDto(ServerType.SERVER_ERROR, "Wrong number of arguments for " + command);
+
+        if (command == Command.MSETNX) {
+            for (int i = 0; i < args.length; i += 2) {
+                if (zs.get(args[i]) != null)
+                    return new ResponseDto(ServerType.SERVER_INTEGER, 0);
+            }
+        }
+
+        List<ZSet.Entry<Object>> batch = new ArrayList<>(args.length / 2);
+        for (int i = 0; i < args.length; i += 2)
+            batch.add(new ZSet.Entry<>(args[i], 1.0, args[i + 1]));
+        List<Object> previous = zs.addAll(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            if (previous.get(i) != null && lazyfree.lazyServerDel())
+                lazyfree.recordLazyFreed(previous.get(i));
+            if (cluster != null)
+                cluster.keyAdded(batch.get(i).name());
+            signalModifiedKey(batch.get(i).name(), connection);
+        }
+        return command == Command.MSETNX ? new ResponseDto(ServerType.SERVER_INTEGER, 1)
+                : new ResponseDto(ServerType.SERVER_STRING, "OK");
+    }
+
+    /**
+     * ZADD key [NX|XX] [GT|LT] [CH] [INCR] score member [score member ...]:
+     * the flags are resolved member by member against the current scores,
+     * then everything that changes goes into the sorted set as one bulk add.
+     */
+    private ResponseDto handleZadd(Connection connection, ByteString[] args) {
+        boolean nx = false, xx = false, gt = false, lt = false, ch = false, incr = false;
+        int first = 1;
+        for (; first < args.length; first++) {
+            String flag = args[first].toString().toUpperCase();
+            if (flag.equals("NX"))
+                nx = true;
+            else if (flag.equals("XX"))
+                xx = true;
+            else if (flag.equals("GT"))
+                gt = true;
+            else if (flag.equals("LT"))
+                lt = true;
+            else if (flag.equals("CH"))
+                ch = true;
+            else if (flag.equals("INCR"))
+                incr = true;
+            else
+                break;
+        }
+        int pairs = (args.length - first) / 2;
+        if (pairs == 0 || (args.length - first) % 2 != 0)
+            return new ResponseDto(ServerType.SERVER_ERROR, "Syntax error");
+        if (nx && xx)
+            return new ResponseDto(ServerType.SERVER_ERROR, "XX and NX options at the same time are not compatible");
+        if ((gt && lt) || (nx && (gt || lt)))
+            return new ResponseDto(ServerType.SERVER_ERROR, "GT, LT, and/or NX options at the same time are not compatible");
+        if (incr && pairs != 1)
+            return new ResponseDto(ServerType.SERVER_ERROR, "INCR option supports a single increment-element pair");
+
+        double[] scores = new double[pairs];
+        for (int i = 0; i < pairs; i++) {
+            scores[i] = parseScore(args[first + 2 * i]);
+            if (Double.isNaN(scores[i]))
+                return new ResponseDto(ServerType.SERVER_ERROR, "value is not a valid float");
+        }
+
+        ByteString key = args[0];
+        ZSet.ZNode<Object> node = zs.get(key);
+        if (node != null && !(node.value instanceof ZSet))
+            return WRONGTYPE;
+        ZSet<Object> zset = node != null ? asZSet(node.value) : null;
+
+        // later pairs see the scores earlier ones set, like sequential adds
+        LinkedHashMap<ByteString, Double> updates = new LinkedHashMap<>();
+        int added = 0, changed = 0;
+        Double result = null;
+        for (int i = 0; i < pairs; i++) {
+            ByteString member = args[first + 2 * i + 1];
+            double score = scores[i];
+            Double current = updates.get(member);
+            if (current == null && zset != null) {
+                ZSet.ZNode<Object> existing = zset.get(member);
+                if (existing != null)
+                    current = existing.score;
+            }
+
+            if (current == null) {
+                if (xx)
+                    continue;
+                added++;
+            } else {
+                if (nx)
+                    continue;
+                if (incr)
+                    score += current;
+                if (Double.isNaN(score))
+                    return new ResponseDto(ServerType.SERVER_ERROR, "resulting score is not a number (NaN)");
+                if ((gt && !(score > current)) || (lt && !(score < current)))
+                    continue;
+                if (Double.compare(score, current) != 0)
+                    changed++;
+            }
+            updates.put(member, score);
+            result = score;
+        }
+
+        if (added + changed > 0) {
+            if (zset == null) {
+                zset = new ZSet<>();
+                zs.add(key, 1.0, zset);
+                if (cluster != null)
+                    cluster.keyAdded(key);
+            }
+            List<ZSet.Entry<Object>> batch = new ArrayList<>(updates.size());
+            updates.forEach((member, score) -> batch.add(new ZSet.Entry<>(member, score, null)));
+            zset.addAll(batch);
+            signalModifiedKey(key, connection);
+        }
+
+        if (incr) // a bulk string, like ZMSCORE
+            return new ResponseDto(ServerType.SERVER_STRING, result != null ? ByteString.of(formatScore(result)) : null);
+        return new ResponseDto(ServerType.SERVER_INTEGER, ch ? added + changed : added);
+    }
+
+    /** ZMSCORE key member [member ...]: nil for missing members */
+    private ResponseDto handleZmscore(Connection connection, ByteString[] args) {
+        if (args.length < 2)
+            return new ResponseDto(ServerType.SERVER_ERROR, "Wrong number of arguments for ZMSCORE");
+        tracking.trackRead(connection, args[0]);
+        ZSet.ZNode<Object> node = zs.get(args[0]);
+        if (node != null && !(node.value instanceof ZSet))
+            return WRONGTYPE;
+
+        List<Object> scores = new ArrayList<>(args.length - 1);
+        for (int i = 1; i < args.length; i++) {
+            ZSet.ZNode<Object> member = node != null ? asZSet(node.value).get(args[i]) : null;
+            scores.add(member != null ? formatScore(member.score) : null);
+        }
+        return new ResponseDto(ServerType.SERVER_ARRAY, scores);
+    }
+
+    /** A float argument the way Redis reads one: inf, +inf and -inf included; NaN when it isn't a number */
+    private static double parseScore(ByteString arg) {
+        String text = arg.toString();
+        switch (text.toLowerCase()) {
+            case "inf", "+inf" -> {
+                return Double.POSITIVE_INFINITY;
+            }
+            case "-inf" -> {
+                return Double.NEGATIVE_INFINITY;
+            }
+            default -> {
+                try {
+                    return Double.parseDouble(text);
+                } catch (NumberFormatException e) {
+                    return Double.NaN;
+                }
+            }
+        }
+    }
+
+    /** Infinite scores go out as inf / -inf, which parseScore (and Redis) read back */
+    private static String formatScore(double score) {
+        if (Double.isInfinite(score))
+            return score > 0 ? "inf" : "-inf";
+        return Double.toString(score);
+    }
+
+    /** Plain values: everything that isn't a set or a sorted set */
+    private static boolean isString(Object value) {
+        return !(value instanceof RedisSet) && !(value instanceof ZSet);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ZSet<Object> asZSet(Object value) {
+        return (ZSet<Object>) value;
+    }
+
+    /** DEL and UNLINK both only detach the value; UNLINK also counts it for lazyfreed_objects */
+    private boolean deleteKey(Connection connection, ByteString name, boolean lazy) {
+        ZSet.ZNode<Object> node = zs.get(name);
+        if (node == null)
+            return false;
+        zs.remove(name);
+        if (lazy)
+            lazyfree.recordLazyFreed(node.value);
+        if (cluster != null)
+            cluster.keyRemoved(name);
+        signalModifiedKey(name, connection);
+        return true;
+    }
+
+    /** FLUSHALL [ASYNC|SYNC]: swaps in an empty keyspace and leaves the old one to the collector */
+    private ResponseDto flushAll(String[] args) {
+        boolean async = false;
+        if (args.length == 1 && (args[0].equalsIgnoreCase("ASYNC") || args[0].equalsIgnoreCase("SYNC")))
+            async = args[0].equalsIgnoreCase("ASYNC");
+        else if (args.length > 0)
+            return new ResponseDto(ServerType.SERVER_ERROR, "Syntax error");
+
+        ZSet<Object> old = zs;
+        zs = new ZSet<>();
+        if (cluster != null)
+            cluster.clearKeys();
+
+        for (ByteString key : watchedKeys.keySet()) {
+            if (old.get(key) != null)
+                touchWatchedKey(key);
+        }
+        tracking.invalidateAll(this::send);
+        if (migrator != null)
+            migrator.flushed();
+
+        if (async)
+            lazyfree.recordLazyFreed(old);
+        return new ResponseDto(ServerType.SERVER_STRING, "OK");
+    }
+
+    /** Every write goes through here: breaks WATCHes and invalidates client caches */
+    private void signalModifiedKey(ByteString key, Connection writer) {
+        touchWatchedKey(key);
+        if (migrator != null)
+            migrator.keyModified(key);
+        tracking.invalidate(key, writer, this::send);
+    }
+
+    private void watch(Connection connection, ByteString key) {
+        if (connection.watching.add(key))
+            watchedKeys.computeIfAbsent(key, k -> new HashSet<>()).add(connection);
+    }
+
+    private void unwatchAll(Connection connection) {
+        for (ByteString key : connection.watching) {
+            HashSet<Connection> watchers = watchedKeys.get(key);
+            if (watchers != null) {
+                watchers.remove(connection);
+                if (watchers.isEmpty())
+                    watchedKeys.remove(key);
+            }
+        }
+        connection.watching.clear();
+        connection.watchDirty = false;
+    }
+
+    private void touchWatchedKey(ByteString key) {
+        HashSet<Connection> watchers = watchedKeys.get(key);
+        if (watchers == null)
+            return;
+        for (Connection watcher : watchers)
+            watcher.watchDirty = true;
+    }
+
+    /** RESTORE is only sent by a migrating node, so it skips the ASKING handshake */
+    private String routeRestore(ByteString name) {
+        int slot = HashSlot.slotOf(name);
+        if (cluster.importingFrom(slot) != null || cluster.self().equals(cluster.ownerOf(slot)))
+            return null;
+        return "MOVED " + slot + " " + cluster.ownerOf(slot);
+    }
+
+    private ResponseDto handleCluster(ByteString[] rawArgs) {
+        String[] args = text(rawArgs);
+        if (cluster == null)
+            return new ResponseDto(ServerType.SERVER_ERROR, "This instance has cluster support disabled");
+        if (args.length == 0)
+            return new ResponseDto(ServerType.SERVER_ERROR, "Wrong number of arguments for CLUSTER");
+
+        try {
+            switch (args[0].toUpperCase()) {
+                case "KEYSLOT" -> {
+                    return new ResponseDto(ServerType.SERVER_INTEGER, HashSlot.slotOf(rawArgs[1]));
+                }
+                case "SLOTS" -> {
+                    return new ResponseDto(ServerType.SERVER_ARRAY, cluster.describeSlots());
+                }
+                case "MYID" -> {
+                    return new ResponseDto(ServerType.SERVER_STRING, cluster.self().toString());
+                }
+                case "COUNTKEYSINSLOT" -> {
+                    return new ResponseDto(ServerType.SERVER_INTEGER,
+                            cluster.countKeysInSlot(Integer.parseInt(args[1])));
+                }
+                case "GETKEYSINSLOT" -> {
+                    return new ResponseDto(ServerType.SERVER_ARRAY,
+                            cluster.getKeysInSlot(Integer.parseInt(args[1]), Integer.parseInt(args[2])));
+                }
+                case "ADDSLOTSRANGE" -> {
+                    cluster.assign(Integer.parseInt(args[1]), Integer.parseInt(args[2]), cluster.self());
+                    return new ResponseDto(ServerType.SERVER_STRING, "OK");
+                }
+                case "SETSLOT" -> {
+                    return handleSetSlot(Integer.parseInt(args[1]), args[2].toUpperCase(), args);
+                }
+                default -> {
+                    return new ResponseDto(ServerType.SERVER_ERROR, "Unknown CLUSTER subcommand");
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return new ResponseDto(ServerType.SERVER_ERROR, "Wrong number of arguments for CLUSTER " + args[0].toUpperCase());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return new ResponseDto(ServerType.SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /** CLUSTER SETSLOT slot IMPORTING|MIGRATING|NODE host:port, or CLUSTER SETSLOT slot STABLE */
+    private ResponseDto handleSetSlot(int slot, String action, String[] args) {
+        switch (action) {
+            case "IMPORTING" -> cluster.setImporting(slot, ClusterNode.parse(args[3]));
+            case "MIGRATING" -> {
+                cluster.setMigrating(slot, ClusterNode.parse(args[3]));
+                migrator.enqueue(slot);
+            }
+            case "NODE" -> cluster.assign(slot, slot, ClusterNode.parse(args[3]));
+            case "STABLE" -> cluster.assign(slot, slot, cluster.ownerOf(slot));
+            default -> {
+                return new ResponseDto(ServerType.SERVER_ERROR, "Invalid CLUSTER SETSLOT action " + action);
+            }
+        }
+        return new ResponseDto(ServerType.SERVER_STRING, "OK");
+    }
+
+    /** Replies are only queued here, handleClient flushes once per read */
+    private void sendResponse(Connection connection, ResponseDto response) {
+        connection.outbox.add(RespWriter.encode(response, connection.resp3));
+    }
+
+    /** Queues a frame and writes as much as the socket takes right now */
+    private void send(Connection connection, ByteBuffer frame) {
+        connection.outbox.add(frame);
+        flush(connection);
+    }
+
+    private void flush(Connection connection) {
+        try {
+            while (!connection.outbox.isEmpty()) {
+                ByteBuffer head = connection.outbox.peek();
+                stats.bytesWritten(connection.channel.write(head));
+                if (head.hasRemaining())
+                    break; // socket buffer full, wait for OP_WRITE
+                connection.outbox.poll();
+            }
+        } catch (IOException e) {
+            connection.outbox.clear();
+            return; // the next read sees the broken connection and disconnects it
+        }
+
+        int ops = connection.outbox.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        if (connection.key.isValid() && connection.key.interestOps() != ops)
+            connection.key.interestOps(ops);
     }
 
 }
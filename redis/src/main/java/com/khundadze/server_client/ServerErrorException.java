@@ -0,0 +1,16 @@
+package com.khundadze.server_client;
+
+/** An error reply ("-ERR ...", "-MOVED ...") returned for a command */
+public class ServerErrorException extends RuntimeException {
+
+    public ServerErrorException(String message) {
+        super(message);
+    }
+
+    /** First word of the error, e.g. ERR, MOVED, ASK */
+    public String code() {
+        String message = getMessage();
+        int space = message.indexOf(' ');
+        return space > 0 ? message.substring(0, space) : message;
+    }
+}
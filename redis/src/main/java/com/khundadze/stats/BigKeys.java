@@ -0,0 +1,139 @@
+package com.khundadze.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.data_structures.RedisSet;
+import com.khundadze.data_structures.ZSet;
+
+/**
+ * Finds the largest keys for BIGKEYS by walking the keyspace's hash table
+ * a few buckets per event loop turn, like SlotMigrator moves keys, so a big
+ * keyspace is covered without ever stalling other clients. Size is the
+ * element count for sets and sorted sets, and the byte length for strings.
+ * Only the event loop thread touches it.
+ */
+public class BigKeys {
+
+    public static final int DEFAULT_TOP = 32;
+    static final int BUCKETS_PER_STEP = 128;
+
+    public record BigKey(ByteString key, String type, long size) {
+        public List<Object> toReply() {
+            return List.of(key, type, size);
+        }
+    }
+
+    /** Outcome of the last completed walk */
+    public record Report(List<BigKey> biggest, long keysScanned, long durationMillis, long finishedAt) {
+    }
+
+    private final int top;
+
+    private ZSet<Object> store; // non-null while a walk is running
+    private int cursor;
+    private long keysScanned;
+    private long startedAt;
+    private final PriorityQueue<BigKey> biggest = new PriorityQueue<>(Comparator.comparingLong(BigKey::size));
+
+    private Report last;
+
+    public BigKeys() {
+        this(DEFAULT_TOP);
+    }
+
+    public BigKeys(int top) {
+        if (top <= 0)
+            throw new IllegalArgumentException("BIGKEYS size must be positive");
+        this.top = top;
+    }
+
+    /** Returns false when a walk is already running */
+    public boolean start(ZSet<Object> keyspace) {
+        if (store != null)
+            return false;
+        store = keyspace;
+        cursor = 0;
+        keysScanned = 0;
+        biggest.clear();
+        startedAt = System.currentTimeMillis();
+        return true;
+    }
+
+    public boolean isRunning() {
+        return store != null;
+    }
+
+    /**
+     * Walks the next buckets; keyspace is the server's current one, if it
+     * was swapped (FLUSHALL) the walk starts over on the new one.
+     */
+    public void step(ZSet<Object> keyspace) {
+        if (store == null)
+            return;
+        if (store != keyspace) {
+            store = null;
+            start(keyspace);
+        }
+        for (int i = 0; i < BUCKETS_PER_STEP; i++) {
+            cursor = store.scan(cursor, this::visit);
+            if (cursor == 0) {
+                finish();
+                return;
+            }
+        }
+    }
+
+    public Report lastReport() {
+        return last;
+    }
+
+    public long keysScanned() {
+        return keysScanned;
+    }
+
+    static String typeOf(Object value) {
+        if (value instanceof RedisSet)
+            return "set";
+        return value instanceof ZSet ? "zset" : "string";
+    }
+
+    static long sizeOf(Object value) {
+        if (value instanceof RedisSet set)
+            return set.size();
+        if (value instanceof ZSet<?> zset)
+            return zset.size();
+        if (value instanceof ByteString bytes)
+            return bytes.length();
+        return value == null ? 0 : value.toString().length();
+    }
+
+    // ------------------------ Helper methods ------------------------
+
+    private void visit(ZSet.ZNode<Object> node) {
+        keysScanned++;
+        long size = sizeOf(node.value);
+        if (biggest.size() == top && biggest.peek().size() >= size)
+            return;
+        // the table may have grown mid-walk and shown us this key before
+        for (BigKey seen : biggest) {
+            if (seen.key().equals(node.name))
+                return;
+        }
+        biggest.add(new BigKey(node.name, typeOf(node.value), size));
+        if (biggest.size() > top)
+            biggest.poll();
+    }
+
+    private void finish() {
+        List<BigKey> sorted = new ArrayList<>(biggest);
+        sorted.sort(Comparator.comparingLong(BigKey::size).reversed());
+        long now = System.currentTimeMillis();
+        last = new Report(List.copyOf(sorted), keysScanned, now - startedAt, now / 1000);
+        store = null;
+        biggest.clear();
+    }
+}
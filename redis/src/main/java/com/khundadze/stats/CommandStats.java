@@ -0,0 +1,83 @@
+package com.khundadze.stats;
+
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import com.khundadze.model.Command;
+
+/**
+ * Per-command counters and latency histograms, indexed by Command ordinal.
+ * Everything is allocated up front so recording on the event loop never
+ * allocates; only the event loop thread touches it.
+ */
+public class CommandStats {
+
+    static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final Command[] COMMANDS = Command.values();
+
+    private final long[] calls = new long[COMMANDS.length];
+    private final long[] nanos = new long[COMMANDS.length];
+    private final long[] rejected = new long[COMMANDS.length]; // refused before running (redirect, wrong context)
+    private final long[] failed = new long[COMMANDS.length]; // ran and replied with an error
+    private final Histogram[] latency = new Histogram[COMMANDS.length];
+
+    public CommandStats() {
+        for (int i = 0; i < latency.length; i++)
+            latency[i] = new Histogram(MAX_LATENCY_NANOS, 2);
+    }
+
+    public void record(Command command, long elapsedNanos, boolean error) {
+        int i = command.ordinal();
+        calls[i]++;
+        nanos[i] += elapsedNanos;
+        if (error)
+            failed[i]++;
+        latency[i].recordValue(Math.min(elapsedNanos, MAX_LATENCY_NANOS));
+    }
+
+    public void reject(Command command) {
+        rejected[command.ordinal()]++;
+    }
+
+    public long calls(Command command) {
+        return calls[command.ordinal()];
+    }
+
+    public long nanos(Command command) {
+        return nanos[command.ordinal()];
+    }
+
+    public long rejected(Command command) {
+        return rejected[command.ordinal()];
+    }
+
+    public long failed(Command command) {
+        return failed[command.ordinal()];
+    }
+
+    /** Live histogram in nanoseconds, read it on the event loop only */
+    public Histogram latency(Command command) {
+        return latency[command.ordinal()];
+    }
+
+    /** Commands that were called or rejected at least once */
+    public boolean seen(Command command) {
+        return calls[command.ordinal()] > 0 || rejected[command.ordinal()] > 0;
+    }
+
+    public long totalCalls() {
+        long total = 0;
+        for (long count : calls)
+            total += count;
+        return total;
+    }
+
+    public long totalNanos() {
+        long total = 0;
+        for (long sum : nanos)
+            total += sum;
+        return total;
+    }
+}
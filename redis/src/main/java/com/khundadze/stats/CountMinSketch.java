@@ -0,0 +1,75 @@
+package com.khundadze.stats;
+
+import java.util.Arrays;
+
+import com.khundadze.data_structures.ByteString;
+
+/**
+ * Approximate access counts in fixed memory: depth rows of width counters,
+ * each key hashed to one counter per row. The estimate is the smallest of
+ * its counters, so it never undercounts; conservative update (only raise
+ * counters that are below the new estimate) keeps the overcount small.
+ */
+public class CountMinSketch {
+
+    private final long[][] rows;
+    private final int mask;
+
+    /** width is rounded up to a power of two */
+    public CountMinSketch(int depth, int width) {
+        if (depth <= 0 || width <= 0)
+            throw new IllegalArgumentException("Sketch depth and width must be positive");
+        int cap = Integer.highestOneBit(Math.max(width - 1, 1)) << 1;
+        this.rows = new long[depth][cap];
+        this.mask = cap - 1;
+    }
+
+    /** Counts weight more accesses of key and returns its new estimate */
+    public long add(ByteString key, long weight) {
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1 ^ 0x9E3779B9) | 1; // odd, so the rows probe different counters
+
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < rows.length; i++)
+            estimate = Math.min(estimate, rows[i][(h1 + i * h2) & mask]);
+        long target = estimate + weight;
+        for (int i = 0; i < rows.length; i++) {
+            int index = (h1 + i * h2) & mask;
+            if (rows[i][index] < target)
+                rows[i][index] = target;
+        }
+        return target;
+    }
+
+    public long estimate(ByteString key) {
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1 ^ 0x9E3779B9) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < rows.length; i++)
+            estimate = Math.min(estimate, rows[i][(h1 + i * h2) & mask]);
+        return estimate;
+    }
+
+    /** Halves every counter, so old traffic fades out */
+    public void decay() {
+        for (long[] row : rows) {
+            for (int i = 0; i < row.length; i++)
+                row[i] >>>= 1;
+        }
+    }
+
+    public void clear() {
+        for (long[] row : rows)
+            Arrays.fill(row, 0);
+    }
+
+    /** MurmurHash3 finalizer: String-style hashes are weak in the low bits */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,156 @@
+package com.khundadze.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import com.khundadze.data_structures.ByteString;
+
+/**
+ * Most accessed keys, for HOTKEYS. One in sampleRate key accesses is
+ * counted, with weight sampleRate, into a CountMinSketch; a Space-Saving
+ * style summary of capacity counters keeps the keys with the highest
+ * estimates in a min-heap, so a new key only needs to beat the smallest.
+ * Every DECAY_SAMPLES samples all counts are halved, so the list follows
+ * the current traffic rather than the all-time totals.
+ * Only the event loop thread touches it.
+ */
+public class HotKeys {
+
+    public static final int DEFAULT_CAPACITY = 64;
+    public static final int DEFAULT_SAMPLE_RATE = 8;
+    static final long DECAY_SAMPLES = 100_000;
+
+    /** An estimated access count, an upper bound that includes sampling noise */
+    public record HotKey(ByteString key, long count) {
+    }
+
+    private static final class Counter {
+        final ByteString key;
+        long count;
+        int heapIndex;
+
+        Counter(ByteString key) {
+            this.key = key;
+        }
+    }
+
+    private final CountMinSketch sketch = new CountMinSketch(4, 4096);
+    private final HashMap<ByteString, Counter> counters;
+    private final Counter[] heap; // min-heap on count
+    private int size;
+
+    private final int sampleRate;
+    private final SplittableRandom random = new SplittableRandom();
+    private long samples;
+
+    public HotKeys() {
+        this(DEFAULT_CAPACITY, DEFAULT_SAMPLE_RATE);
+    }
+
+    /** sampleRate 1 counts every access, 0 disables tracking */
+    public HotKeys(int capacity, int sampleRate) {
+        if (capacity <= 0 || sampleRate < 0)
+            throw new IllegalArgumentException("Invalid hot keys capacity or sample rate");
+        this.heap = new Counter[capacity];
+        this.counters = new HashMap<>(capacity * 2);
+        this.sampleRate = sampleRate;
+    }
+
+    /** Called for every key a command touches; all but the sampled ones return after one random draw */
+    public void access(ByteString key) {
+        if (sampleRate == 0 || (sampleRate > 1 && random.nextInt(sampleRate) != 0))
+            return;
+
+        long estimate = sketch.add(key, sampleRate);
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            counter.count = estimate;
+            siftDown(counter.heapIndex);
+        } else if (size < heap.length) {
+            counter = new Counter(key);
+            counter.count = estimate;
+            counter.heapIndex = size;
+            heap[size++] = counter;
+            counters.put(key, counter);
+            siftUp(counter.heapIndex);
+        } else if (estimate > heap[0].count) {
+            // the newcomer overtook the coldest tracked key: reuse its slot
+            counters.remove(heap[0].key);
+            counter = new Counter(key);
+            counter.count = estimate;
+            heap[0] = counter;
+            counters.put(key, counter);
+            siftDown(0);
+        }
+
+        if (++samples % DECAY_SAMPLES == 0)
+            decay();
+    }
+
+    /** Hottest first */
+    public List<HotKey> top(int count) {
+        List<HotKey> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            out.add(new HotKey(heap[i].key, heap[i].count));
+        out.sort(Comparator.comparingLong(HotKey::count).reversed());
+        return out.size() > count ? out.subList(0, Math.max(count, 0)) : out;
+    }
+
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    public void reset() {
+        sketch.clear();
+        counters.clear();
+        for (int i = 0; i < size; i++)
+            heap[i] = null;
+        size = 0;
+        samples = 0;
+    }
+
+    // ------------------------ Helper methods ------------------------
+
+    /** Halving keeps the heap order, the sketch and the counters stay consistent */
+    private void decay() {
+        sketch.decay();
+        for (int i = 0; i < size; i++)
+            heap[i].count >>>= 1;
+    }
+
+    private void siftUp(int i) {
+        Counter counter = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent].count <= counter.count)
+                break;
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(counter, i);
+    }
+
+    private void siftDown(int i) {
+        Counter counter = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && heap[child + 1].count < heap[child].count)
+                child++;
+            if (counter.count <= heap[child].count)
+                break;
+            place(heap[child], i);
+            i = child;
+        }
+        place(counter, i);
+    }
+
+    private void place(Counter counter, int i) {
+        heap[i] = counter;
+        counter.heapIndex = i;
+    }
+}
@@ -0,0 +1,107 @@
+package com.khundadze.stats;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Counters of the event loop: connections, network traffic, loop iterations
+ * and the per-command stats. Updated inline by the event loop thread only.
+ */
+public class ServerStats {
+
+    /** Point-in-time values the server computes when a report is requested */
+    public record Gauges(
+            int connectedClients,
+            long pendingOutputBytes,
+            long maxOutputBuffer,
+            long queryBufferBytes,
+            long maxQueryBuffer,
+            int keys,
+            int pubsubChannels,
+            int pubsubPatterns,
+            int trackedKeys,
+            long lazyfreed,
+            boolean clusterEnabled) {
+    }
+
+    private final CommandStats commands = new CommandStats();
+
+    private final long startedAt = System.currentTimeMillis();
+
+    private long connectionsReceived;
+    private long netInputBytes;
+    private long netOutputBytes;
+    private long errorReplies;
+    private long unknownCommands;
+
+    // busy time of one loop iteration, from select() returning to the next select()
+    private long eventLoopCycles;
+    private long eventLoopNanos;
+    private final Histogram eventLoopLatency = new Histogram(CommandStats.MAX_LATENCY_NANOS, 2);
+
+    public CommandStats commands() {
+        return commands;
+    }
+
+    public void connectionAccepted() {
+        connectionsReceived++;
+    }
+
+    public void bytesRead(long bytes) {
+        netInputBytes += bytes;
+    }
+
+    public void bytesWritten(long bytes) {
+        netOutputBytes += bytes;
+    }
+
+    public void errorReply() {
+        errorReplies++;
+    }
+
+    /** Frames that didn't name a known command, or had unparsable arguments */
+    public void unknownCommand() {
+        unknownCommands++;
+    }
+
+    public void eventLoopCycle(long elapsedNanos) {
+        eventLoopCycles++;
+        eventLoopNanos += elapsedNanos;
+        eventLoopLatency.recordValue(Math.min(elapsedNanos, CommandStats.MAX_LATENCY_NANOS));
+    }
+
+    public long uptimeSeconds() {
+        return (System.currentTimeMillis() - startedAt) / 1000;
+    }
+
+    public long connectionsReceived() {
+        return connectionsReceived;
+    }
+
+    public long netInputBytes() {
+        return netInputBytes;
+    }
+
+    public long netOutputBytes() {
+        return netOutputBytes;
+    }
+
+    public long errorReplies() {
+        return errorReplies;
+    }
+
+    public long unknownCommands() {
+        return unknownCommands;
+    }
+
+    public long eventLoopCycles() {
+        return eventLoopCycles;
+    }
+
+    public long eventLoopNanos() {
+        return eventLoopNanos;
+    }
+
+    public Histogram eventLoopLatency() {
+        return eventLoopLatency;
+    }
+}
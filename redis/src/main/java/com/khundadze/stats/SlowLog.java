@@ -0,0 +1,124 @@
+package com.khundadze.stats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.khundadze.data_structures.ByteString;
+
+/**
+ * Commands that ran longer than a threshold, kept in a fixed ring of
+ * preallocated entries; the oldest entry is overwritten when it is full.
+ * Only the event loop thread touches it, so no locking is needed, and the
+ * fast path is a single comparison in isSlow().
+ */
+public class SlowLog {
+
+    static final int MAX_ARGS = 32;
+    static final int MAX_ARG_LENGTH = 128;
+
+    /** One slow command; the slots are reused as the ring wraps around */
+    public static final class Entry {
+        private long id;
+        private long timestamp; // unix seconds
+        private long durationMicros;
+        private String[] args;
+        private String client;
+
+        public long id() {
+            return id;
+        }
+
+        public long timestamp() {
+            return timestamp;
+        }
+
+        public long durationMicros() {
+            return durationMicros;
+        }
+
+        public String[] args() {
+            return args;
+        }
+
+        public String client() {
+            return client;
+        }
+
+        /** SLOWLOG GET layout: id, timestamp, duration, arguments, client address, client name */
+        public List<Object> toReply() {
+            return List.of(id, timestamp, durationMicros, Arrays.asList(args), client, "");
+        }
+    }
+
+    private final Entry[] ring;
+    private final long slowerThanNanos; // negative disables the log
+    private long nextId;
+    private int size;
+
+    public SlowLog(long slowerThanMicros, int maxLen) {
+        if (maxLen <= 0)
+            throw new IllegalArgumentException("Slowlog length must be positive");
+        this.ring = new Entry[maxLen];
+        for (int i = 0; i < maxLen; i++)
+            ring[i] = new Entry();
+        this.slowerThanNanos = slowerThanMicros < 0 ? -1 : slowerThanMicros * 1000;
+    }
+
+    public boolean isSlow(long elapsedNanos) {
+        return slowerThanNanos >= 0 && elapsedNanos >= slowerThanNanos;
+    }
+
+    /**
+     * The command line is trimmed to MAX_ARGS arguments of at most
+     * MAX_ARG_LENGTH bytes before anything is decoded, so logging a huge
+     * MSET costs no more than logging a small one.
+     */
+    public void add(String command, ByteString[] args, long elapsedNanos, String client) {
+        Entry entry = ring[(int) (nextId % ring.length)];
+        entry.id = nextId++;
+        entry.timestamp = System.currentTimeMillis() / 1000;
+        entry.durationMicros = elapsedNanos / 1000;
+        entry.args = truncate(command, args);
+        entry.client = client;
+        size = Math.min(size + 1, ring.length);
+    }
+
+    /** Newest first, at most count entries */
+    public List<Entry> get(int count) {
+        int n = Math.min(count, size);
+        List<Entry> entries = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++)
+            entries.add(ring[(int) ((nextId - i) % ring.length)]);
+        return entries;
+    }
+
+    public int len() {
+        return size;
+    }
+
+    /** Ids keep counting after a reset, like Redis */
+    public void reset() {
+        for (Entry entry : ring)
+            entry.args = null;
+        size = 0;
+    }
+
+    // ------------------------ Helper methods ------------------------
+
+    /** Like Redis: the last kept slot says how many arguments were dropped, long ones say how many bytes */
+    private static String[] truncate(String command, ByteString[] args) {
+        int total = args.length + 1; // the command name counts as an argument
+        int kept = total > MAX_ARGS ? MAX_ARGS - 1 : total;
+        String[] result = new String[Math.min(total, MAX_ARGS)];
+        result[0] = command;
+        for (int i = 1; i < kept; i++) {
+            ByteString arg = args[i - 1];
+            result[i] = arg.length() <= MAX_ARG_LENGTH ? arg.toString()
+                    : arg.toString(MAX_ARG_LENGTH) + "... (" + (arg.length() - MAX_ARG_LENGTH) + " more bytes)";
+        }
+        if (kept < total)
+            result[kept] = "... (" + (total - kept) + " more arguments)";
+        return result;
+    }
+}
@@ -0,0 +1,239 @@
+package com.khundadze.stats;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+import com.khundadze.model.Command;
+
+/** Renders ServerStats as INFO text, LATENCY HISTOGRAM replies and Prometheus exposition text */
+public final class StatsFormat {
+
+    private static final List<String> SECTIONS = List.of("server", "clients", "memory", "stats", "commandstats",
+            "latencystats", "cluster", "keyspace");
+
+    // Prometheus bucket bounds: 1us, 2us, 4us ... ~16.7s
+    private static final int PROMETHEUS_BUCKETS = 25;
+
+    private StatsFormat() {
+    }
+
+    /** INFO [section ...], every section when none or "all" is given */
+    public static String info(ServerStats stats, ServerStats.Gauges gauges, String... sections) {
+        Set<String> wanted = new HashSet<>();
+        for (String section : sections)
+            wanted.add(section.toLowerCase());
+        boolean all = wanted.isEmpty() || wanted.contains("all") || wanted.contains("everything");
+
+        StringBuilder sb = new StringBuilder();
+        for (String section : SECTIONS) {
+            if (!all && !wanted.contains(section))
+                continue;
+            if (!sb.isEmpty())
+                sb.append("\r\n");
+            sb.append("# ").append(Character.toUpperCase(section.charAt(0))).append(section.substring(1))
+                    .append("\r\n");
+            appendSection(sb, section, stats, gauges);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * LATENCY HISTOGRAM reply: [name, [calls, n, histogram_usec, [bucket, cumulative count, ...]], ...]
+     * with power-of-two microsecond buckets, only buckets that hold calls are listed.
+     */
+    public static List<Object> latencyHistogram(CommandStats commands, List<Command> selected) {
+        List<Object> reply = new ArrayList<>();
+        for (Command command : selected.isEmpty() ? List.of(Command.values()) : selected) {
+            if (commands.calls(command) == 0)
+                continue;
+            List<Object> buckets = new ArrayList<>();
+            long boundUsec = 1;
+            for (HistogramIterationValue v : commands.latency(command).logarithmicBucketValues(1000, 2.0)) {
+                if (v.getCountAddedInThisIterationStep() > 0) {
+                    buckets.add(boundUsec);
+                    buckets.add(v.getTotalCountToThisValue());
+                }
+                boundUsec <<= 1;
+            }
+            reply.add(command.name().toLowerCase());
+            reply.add(List.of("calls", commands.calls(command), "histogram_usec", buckets));
+        }
+        return reply;
+    }
+
+    /** Prometheus text exposition format, version 0.0.4 */
+    public static String prometheus(ServerStats stats, ServerStats.Gauges gauges) {
+        StringBuilder sb = new StringBuilder(4096);
+        CommandStats commands = stats.commands();
+
+        metric(sb, "redis_uptime_seconds", "gauge", "Seconds since the server started", stats.uptimeSeconds());
+        metric(sb, "redis_connected_clients", "gauge", "Open client connections", gauges.connectedClients());
+        metric(sb, "redis_connections_received_total", "counter", "Accepted client connections",
+                stats.connectionsReceived());
+        metric(sb, "redis_net_input_bytes_total", "counter", "Bytes read from clients", stats.netInputBytes());
+        metric(sb, "redis_net_output_bytes_total", "counter", "Bytes written to clients", stats.netOutputBytes());
+        metric(sb, "redis_output_buffer_bytes", "gauge", "Replies queued but not yet written",
+                gauges.pendingOutputBytes());
+        metric(sb, "redis_query_buffer_bytes", "gauge", "Received bytes of incomplete commands",
+                gauges.queryBufferBytes());
+        metric(sb, "redis_error_replies_total", "counter", "Error replies sent", stats.errorReplies());
+        metric(sb, "redis_unknown_commands_total", "counter", "Unknown or malformed commands",
+                stats.unknownCommands());
+        metric(sb, "redis_keys", "gauge", "Keys in the keyspace", gauges.keys());
+        metric(sb, "redis_pubsub_channels", "gauge", "Channels with subscribers", gauges.pubsubChannels());
+        metric(sb, "redis_pubsub_patterns", "gauge", "Patterns with subscribers", gauges.pubsubPatterns());
+        metric(sb, "redis_tracking_keys", "gauge", "Keys remembered for client side caching",
+                gauges.trackedKeys());
+        metric(sb, "redis_lazyfreed_objects_total", "counter", "Big values deleted through UNLINK or FLUSHALL ASYNC",
+                gauges.lazyfreed());
+
+        header(sb, "redis_eventloop_duration_seconds", "histogram", "Busy time of one event loop iteration");
+        histogram(sb, "redis_eventloop_duration_seconds", "", stats.eventLoopLatency(), stats.eventLoopNanos());
+
+        header(sb, "redis_commands_total", "counter", "Calls per command");
+        for (Command command : Command.values()) {
+            if (commands.seen(command))
+                sb.append("redis_commands_total").append(label(command)).append(' ').append(commands.calls(command))
+                        .append('\n');
+        }
+        header(sb, "redis_commands_rejected_calls_total", "counter", "Calls refused before running");
+        for (Command command : Command.values()) {
+            if (commands.seen(command))
+                sb.append("redis_commands_rejected_calls_total").append(label(command)).append(' ')
+                        .append(commands.rejected(command)).append('\n');
+        }
+        header(sb, "redis_commands_failed_calls_total", "counter", "Calls that replied with an error");
+        for (Command command : Command.values()) {
+            if (commands.seen(command))
+                sb.append("redis_commands_failed_calls_total").append(label(command)).append(' ')
+                        .append(commands.failed(command)).append('\n');
+        }
+        header(sb, "redis_commands_duration_seconds", "histogram", "Execution time per command");
+        for (Command command : Command.values()) {
+            if (commands.calls(command) > 0)
+                histogram(sb, "redis_commands_duration_seconds", "cmd=\"" + name(command) + "\",",
+                        commands.latency(command), commands.nanos(command));
+        }
+        return sb.toString();
+    }
+
+    // ------------------------ Helper methods ------------------------
+
+    private static void appendSection(StringBuilder sb, String section, ServerStats stats, ServerStats.Gauges g) {
+        CommandStats commands = stats.commands();
+        switch (section) {
+            case "server" -> {
+                field(sb, "process_id", ProcessHandle.current().pid());
+                field(sb, "java_version", System.getProperty("java.version"));
+                field(sb, "uptime_in_seconds", stats.uptimeSeconds());
+            }
+            case "clients" -> {
+                field(sb, "connected_clients", g.connectedClients());
+                field(sb, "client_recent_max_input_buffer", g.maxQueryBuffer());
+                field(sb, "client_recent_max_output_buffer", g.maxOutputBuffer());
+                field(sb, "total_input_buffer", g.queryBufferBytes());
+                field(sb, "total_output_buffer", g.pendingOutputBytes());
+            }
+            case "memory" -> {
+                Runtime runtime = Runtime.getRuntime();
+                field(sb, "used_memory", runtime.totalMemory() - runtime.freeMemory());
+                field(sb, "total_memory", runtime.totalMemory());
+                field(sb, "max_memory", runtime.maxMemory());
+            }
+            case "stats" -> {
+                Histogram loop = stats.eventLoopLatency();
+                field(sb, "total_connections_received", stats.connectionsReceived());
+                field(sb, "total_commands_processed", commands.totalCalls());
+                field(sb, "total_net_input_bytes", stats.netInputBytes());
+                field(sb, "total_net_output_bytes", stats.netOutputBytes());
+                field(sb, "total_error_replies", stats.errorReplies());
+                field(sb, "unknown_commands", stats.unknownCommands());
+                field(sb, "pubsub_channels", g.pubsubChannels());
+                field(sb, "pubsub_patterns", g.pubsubPatterns());
+                field(sb, "tracking_total_keys", g.trackedKeys());
+                field(sb, "lazyfreed_objects", g.lazyfreed());
+                field(sb, "eventloop_cycles", stats.eventLoopCycles());
+                field(sb, "eventloop_duration_sum", stats.eventLoopNanos() / 1000);
+                field(sb, "eventloop_duration_cmd_sum", commands.totalNanos() / 1000);
+                field(sb, "eventloop_duration_p99", loop.getValueAtPercentile(99) / 1000);
+                field(sb, "eventloop_duration_max", loop.getMaxValue() / 1000);
+            }
+            case "commandstats" -> {
+                for (Command command : Command.values()) {
+                    if (!commands.seen(command))
+                        continue;
+                    long calls = commands.calls(command);
+                    long usec = commands.nanos(command) / 1000;
+                    sb.append("cmdstat_").append(name(command)).append(":calls=").append(calls)
+                            .append(",usec=").append(usec)
+                            .append(",usec_per_call=")
+                            .append(String.format(Locale.ROOT, "%.2f", calls == 0 ? 0.0 : (double) usec / calls))
+                            .append(",rejected_calls=").append(commands.rejected(command))
+                            .append(",failed_calls=").append(commands.failed(command)).append("\r\n");
+                }
+            }
+            case "latencystats" -> {
+                for (Command command : Command.values()) {
+                    if (commands.calls(command) == 0)
+                        continue;
+                    Histogram h = commands.latency(command);
+                    sb.append("latency_percentiles_usec_").append(name(command)).append(':')
+                            .append(String.format(Locale.ROOT, "p50=%.3f,p99=%.3f,p99.9=%.3f",
+                                    h.getValueAtPercentile(50) / 1e3, h.getValueAtPercentile(99) / 1e3,
+                                    h.getValueAtPercentile(99.9) / 1e3))
+                            .append("\r\n");
+                }
+            }
+            case "cluster" -> field(sb, "cluster_enabled", g.clusterEnabled() ? 1 : 0);
+            case "keyspace" -> {
+                if (g.keys() > 0)
+                    field(sb, "db0", "keys=" + g.keys());
+            }
+            default -> throw new IllegalStateException("Unexpected section " + section);
+        }
+    }
+
+    private static void field(StringBuilder sb, String name, Object value) {
+        sb.append(name).append(':').append(value).append("\r\n");
+    }
+
+    private static void metric(StringBuilder sb, String name, String type, String help, long value) {
+        header(sb, name, type, help);
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /** labels is empty or ends with a comma, the le label is appended to it */
+    private static void histogram(StringBuilder sb, String name, String labels, Histogram h, long sumNanos) {
+        for (int i = 0; i < PROMETHEUS_BUCKETS; i++) {
+            long bound = 1000L << i;
+            sb.append(name).append("_bucket{").append(labels).append("le=\"")
+                    .append(String.format(Locale.ROOT, "%.6f", bound / 1e9)).append("\"} ")
+                    .append(h.getCountBetweenValues(0, bound)).append('\n');
+        }
+        sb.append(name).append("_bucket{").append(labels).append("le=\"+Inf\"} ").append(h.getTotalCount())
+                .append('\n');
+        String suffix = labels.isEmpty() ? "" : "{" + labels.substring(0, labels.length() - 1) + "}";
+        sb.append(name).append("_sum").append(suffix).append(' ')
+                .append(String.format(Locale.ROOT, "%.9f", sumNanos / 1e9)).append('\n');
+        sb.append(name).append("_count").append(suffix).append(' ').append(h.getTotalCount()).append('\n');
+    }
+
+    private static String label(Command command) {
+        return "{cmd=\"" + name(command) + "\"}";
+    }
+
+    private static String name(Command command) {
+        return command.name().toLowerCase();
+    }
+}
@@ -0,0 +1,126 @@
+package com.khundadze.tracking;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.protocol.RespWriter;
+
+/**
+ * Server side of client-side caching (CLIENT TRACKING).
+ * Default mode remembers which clients read which keys and notifies each of
+ * them once when the key changes; broadcast mode notifies every client whose
+ * prefixes match a changed key, without remembering reads.
+ */
+public class ClientTracking<S> {
+
+    /** Per client options of CLIENT TRACKING ON, plus the keys it is registered as a reader of */
+    private record Options(boolean broadcast, List<ByteString> prefixes, boolean noLoop, Set<ByteString> keys) {
+    }
+
+    private final HashMap<S, Options> clients = new HashMap<>();
+
+    // key -> clients that read it since its last invalidation
+    private final HashMap<ByteString, Set<S>> readers = new HashMap<>();
+
+    // prefix -> BCAST clients, the empty prefix matches every key
+    private final HashMap<ByteString, Set<S>> prefixes = new HashMap<>();
+
+    public void enable(S client, boolean broadcast, List<ByteString> keyPrefixes, boolean noLoop) {
+        disable(client);
+        List<ByteString> registered = broadcast && keyPrefixes.isEmpty() ? List.of(ByteString.EMPTY)
+                : List.copyOf(keyPrefixes);
+        clients.put(client, new Options(broadcast, registered, noLoop, new HashSet<>()));
+        if (broadcast) {
+            for (ByteString prefix : registered)
+                prefixes.computeIfAbsent(prefix, p -> new HashSet<>()).add(client);
+        }
+    }
+
+    /** Drops every trace of the client, so a disconnected one isn't kept alive by the tables */
+    public void disable(S client) {
+        Options options = clients.remove(client);
+        if (options == null)
+            return;
+        for (ByteString key : options.keys()) {
+            Set<S> set = readers.get(key);
+            set.remove(client);
+            if (set.isEmpty())
+                readers.remove(key);
+        }
+        for (ByteString prefix : options.prefixes()) {
+            Set<S> set = prefixes.get(prefix);
+            set.remove(client);
+            if (set.isEmpty())
+                prefixes.remove(prefix);
+        }
+    }
+
+    public boolean isTracking(S client) {
+        return clients.containsKey(client);
+    }
+
+    /** Called after a read; no-op for clients not tracking or in broadcast mode */
+    public void trackRead(S client, ByteString key) {
+        Options options = clients.get(client);
+        if (options == null || options.broadcast())
+            return;
+        if (readers.computeIfAbsent(key, k -> new HashSet<>()).add(client))
+            options.keys().add(key);
+    }
+
+    /**
+     * Sends one "invalidate" push for the key to every interested client.
+     * The frame is encoded once and shared; writer is the client that changed
+     * the key (may be null), skipped when it asked for NOLOOP.
+     */
+    public void invalidate(ByteString key, S writer, BiConsumer<S, ByteBuffer> deliver) {
+        if (clients.isEmpty())
+            return;
+
+        Set<S> targets = new HashSet<>();
+        Set<S> keyReaders = readers.remove(key);
+        if (keyReaders != null) {
+            targets.addAll(keyReaders);
+            for (S reader : keyReaders)
+                clients.get(reader).keys().remove(key);
+        }
+        for (Map.Entry<ByteString, Set<S>> entry : prefixes.entrySet()) {
+            if (key.startsWith(entry.getKey()))
+                targets.addAll(entry.getValue());
+        }
+        if (targets.isEmpty())
+            return;
+
+        ByteBuffer frame = null;
+        for (S client : targets) {
+            Options options = clients.get(client);
+            if (options == null || (options.noLoop() && client.equals(writer)))
+                continue;
+            if (frame == null)
+                frame = RespWriter.encodePush(true, "invalidate", List.of(key)).asReadOnlyBuffer();
+            deliver.accept(client, frame.duplicate());
+        }
+    }
+
+    /** FLUSHALL: every tracking client drops its whole cache, signalled by a null key list */
+    public void invalidateAll(BiConsumer<S, ByteBuffer> deliver) {
+        readers.clear();
+        for (Options options : clients.values())
+            options.keys().clear();
+        if (clients.isEmpty())
+            return;
+        ByteBuffer frame = RespWriter.encodePush(true, "invalidate", null).asReadOnlyBuffer();
+        for (S client : clients.keySet())
+            deliver.accept(client, frame.duplicate());
+    }
+
+    public int trackedKeyCount() {
+        return readers.size();
+    }
+}
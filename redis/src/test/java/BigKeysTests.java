@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.data_structures.RedisSet;
+import com.khundadze.data_structures.ZSet;
+import com.khundadze.stats.BigKeys;
+
+class BigKeysTests {
+
+    private static ZSet<Object> keyspace(int keys) {
+        ZSet<Object> zs = new ZSet<>();
+        for (int i = 0; i < keys; i++)
+            zs.add(ByteString.of("k" + i), 1, ByteString.of("x".repeat(i % 100)));
+        RedisSet set = new RedisSet();
+        for (int i = 0; i < 500; i++)
+            set.add(ByteString.of(i));
+        zs.add(ByteString.of("set"), 1, set);
+        return zs;
+    }
+
+    private static void runToEnd(BigKeys bigkeys, ZSet<Object> zs) {
+        for (int i = 0; i < 10_000 && bigkeys.isRunning(); i++)
+            bigkeys.step(zs);
+        assertFalse(bigkeys.isRunning());
+    }
+
+    @Test
+    void testFindsTheBiggestKeys() {
+        ZSet<Object> zs = keyspace(5000);
+        BigKeys bigkeys = new BigKeys(3);
+        assertNull(bigkeys.lastReport());
+
+        assertTrue(bigkeys.start(zs));
+        assertFalse(bigkeys.start(zs), "One walk at a time");
+        runToEnd(bigkeys, zs);
+
+        BigKeys.Report report = bigkeys.lastReport();
+        List<BigKeys.BigKey> biggest = report.biggest();
+        assertEquals(3, biggest.size());
+        assertEquals(new BigKeys.BigKey(ByteString.of("set"), "set", 500), biggest.get(0));
+        assertEquals(99, biggest.get(1).size());
+        assertEquals(99, biggest.get(2).size());
+        assertTrue(report.keysScanned() >= zs.size());
+    }
+
+    @Test
+    void testWalkRestartsWhenTheKeyspaceIsSwapped() {
+        BigKeys bigkeys = new BigKeys(1);
+        ZSet<Object> old = keyspace(50_000);
+        bigkeys.start(old);
+        bigkeys.step(old);
+        assertTrue(bigkeys.isRunning());
+
+        // FLUSHALL swapped in a new keyspace mid-walk
+        ZSet<Object> fresh = new ZSet<>();
+        fresh.add(ByteString.of("only"), 1, ByteString.of("v"));
+        runToEnd(bigkeys, fresh);
+        assertEquals(1, bigkeys.lastReport().keysScanned());
+        assertEquals(ByteString.of("only"), bigkeys.lastReport().biggest().get(0).key());
+    }
+}
@@ -0,0 +1,64 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.data_structures.HashTable;
+
+class ByteStringTests {
+
+    @Test
+    void testEqualityAndHash() {
+        byte[] buffer = { 'x', 'k', 'e', 'y', 'x' };
+        ByteString key = ByteString.copyOf(buffer, 1, 3);
+        buffer[1] = 'K'; // copied, later changes to the buffer don't leak in
+
+        assertEquals(ByteString.of("key"), key);
+        assertEquals(ByteString.of("key").hashCode(), key.hashCode());
+        assertNotEquals(ByteString.of("kez"), key);
+        assertEquals(3, key.length());
+        assertSame(ByteString.EMPTY, ByteString.copyOf(buffer, 2, 0));
+
+        Set<ByteString> set = new HashSet<>();
+        set.add(key);
+        assertTrue(set.contains(ByteString.of("key")));
+    }
+
+    @Test
+    void testBinaryContentSurvives() {
+        byte[] raw = { 0, (byte) 0xFF, (byte) 0xC3, '\n' };
+        ByteString value = ByteString.copyOf(raw);
+        assertArrayEquals(raw, value.toByteArray());
+
+        HashTable<ByteString, String> table = new HashTable<>();
+        table.put(value, "binary");
+        assertEquals("binary", table.get(ByteString.copyOf(raw.clone())));
+    }
+
+    @Test
+    void testUnsignedOrder() {
+        ByteString low = ByteString.copyOf(new byte[] { 0x7F });
+        ByteString high = ByteString.copyOf(new byte[] { (byte) 0x80 });
+        assertTrue(low.compareTo(high) < 0, "0x80 sorts after 0x7F like memcmp");
+        assertTrue(ByteString.of("ab").compareTo(ByteString.of("abc")) < 0);
+        assertEquals(0, ByteString.of("abc").compareTo(ByteString.of("abc")));
+    }
+
+    @Test
+    void testHelpers() {
+        assertTrue(ByteString.of("user:1").startsWith(ByteString.of("user:")));
+        assertTrue(ByteString.of("user:1").startsWith(ByteString.EMPTY));
+        assertFalse(ByteString.of("us").startsWith(ByteString.of("user:")));
+
+        ByteString upper = ByteString.of("GET");
+        assertSame(upper, upper.toUpperCaseAscii());
+        assertEquals(upper, ByteString.of("gEt").toUpperCaseAscii());
+
+        assertEquals(ByteString.of("-42"), ByteString.of(-42L));
+        assertEquals(2, ByteString.of("a{b}").indexOf((byte) 'b', 0));
+        assertEquals("héllo", ByteString.of("héllo").toString());
+    }
+}
@@ -0,0 +1,113 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.tracking.ClientTracking;
+
+class ClientTrackingTests {
+
+    private static final String INVALIDATE_FOO = ">2\r\n$10\r\ninvalidate\r\n*1\r\n$3\r\nfoo\r\n";
+
+    private ClientTracking<String> tracking;
+    private List<String> pushes;
+
+    @BeforeEach
+    void setUp() {
+        tracking = new ClientTracking<>();
+        pushes = new ArrayList<>();
+    }
+
+    private void invalidate(String key, String writer) {
+        tracking.invalidate(ByteString.of(key), writer, (client, frame) -> pushes.add(client + "<-"
+                + StandardCharsets.UTF_8.decode(frame)));
+    }
+
+    @Test
+    void testReadersAreInvalidatedOnce() {
+        tracking.enable("c1", false, List.of(), false);
+        tracking.trackRead("c1", ByteString.of("foo"));
+        assertEquals(1, tracking.trackedKeyCount());
+
+        invalidate("foo", "c2");
+        assertEquals(List.of("c1<-" + INVALIDATE_FOO), pushes);
+        assertEquals(0, tracking.trackedKeyCount());
+
+        // not read again since the invalidation -> nothing to send
+        invalidate("foo", "c2");
+        assertEquals(1, pushes.size());
+    }
+
+    @Test
+    void testUntrackedClientsAreIgnored() {
+        tracking.trackRead("c1", ByteString.of("foo"));
+        invalidate("foo", null);
+        assertTrue(pushes.isEmpty());
+        assertEquals(0, tracking.trackedKeyCount());
+    }
+
+    @Test
+    void testNoLoopSkipsTheWriter() {
+        tracking.enable("c1", false, List.of(), true);
+        tracking.enable("c2", false, List.of(), false);
+        tracking.trackRead("c1", ByteString.of("foo"));
+        tracking.trackRead("c2", ByteString.of("foo"));
+
+        invalidate("foo", "c1");
+        assertEquals(List.of("c2<-" + INVALIDATE_FOO), pushes);
+    }
+
+    @Test
+    void testBroadcastPrefixes() {
+        tracking.enable("c1", true, List.of(ByteString.of("user:")), false);
+        tracking.enable("c2", true, List.of(), false);
+
+        invalidate("user:1", null);
+        invalidate("order:1", null);
+
+        assertEquals(3, pushes.size());
+        assertEquals(2, pushes.stream().filter(p -> p.startsWith("c2")).count());
+        assertEquals(0, tracking.trackedKeyCount(), "BCAST mode doesn't remember reads");
+    }
+
+    @Test
+    void testDisable() {
+        tracking.enable("c1", true, List.of(ByteString.of("a")), false);
+        tracking.enable("c2", false, List.of(), false);
+        tracking.trackRead("c2", ByteString.of("abc"));
+        tracking.disable("c1");
+        tracking.disable("c2");
+
+        assertFalse(tracking.isTracking("c1"));
+        invalidate("abc", null);
+        assertTrue(pushes.isEmpty());
+    }
+
+    @Test
+    void testDisableForgetsTheClientsReads() {
+        tracking.enable("c1", false, List.of(), false);
+        tracking.enable("c2", false, List.of(), false);
+        tracking.trackRead("c1", ByteString.of("a"));
+        tracking.trackRead("c1", ByteString.of("b"));
+        tracking.trackRead("c2", ByteString.of("b"));
+        assertEquals(2, tracking.trackedKeyCount());
+
+        tracking.disable("c1"); // keys never written again must not keep c1 around
+        assertEquals(1, tracking.trackedKeyCount());
+        tracking.disable("c2");
+        assertEquals(0, tracking.trackedKeyCount());
+
+        // a reader that was invalidated and then disabled
+        tracking.enable("c1", false, List.of(), false);
+        tracking.trackRead("c1", ByteString.of("a"));
+        invalidate("a", null);
+        tracking.trackRead("c1", ByteString.of("b"));
+        tracking.disable("c1");
+        assertEquals(0, tracking.trackedKeyCount());
+    }
+}
@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.khundadze.cluster.ClusterNode;
+import com.khundadze.cluster.ClusterState;
+import com.khundadze.cluster.HashSlot;
+import com.khundadze.data_structures.ByteString;
+
+class ClusterStateTests {
+
+    private static final ClusterNode A = new ClusterNode("127.0.0.1", 7000);
+    private static final ClusterNode B = new ClusterNode("127.0.0.1", 7001);
+
+    private ClusterState state;
+
+    @BeforeEach
+    void setUp() {
+        state = new ClusterState(A);
+        state.applyLayout("127.0.0.1:7000=0-8191,127.0.0.1:7001=8192-16383");
+    }
+
+    @Test
+    void testLayoutAndOwnership() {
+        assertEquals(A, state.ownerOf(0));
+        assertEquals(A, state.ownerOf(8191));
+        assertEquals(B, state.ownerOf(8192));
+        assertEquals(2, state.describeSlots().size());
+        assertEquals("0-8191 127.0.0.1:7000", state.describeSlots().get(0));
+    }
+
+    @Test
+    void testRouteServesOwnedAndMovesOthers() {
+        // "bar" -> 5061 owned by A, "foo" -> 12182 owned by B
+        assertNull(state.route(ByteString.of("bar"), false, false));
+        assertEquals("MOVED 12182 127.0.0.1:7001", state.route(ByteString.of("foo"), false, false));
+    }
+
+    @Test
+    void testMigratingSlotAsksForMissingKeys() {
+        state.setMigrating(5061, B);
+        assertNull(state.route(ByteString.of("bar"), true, false), "Keys still here are served locally");
+        assertEquals("ASK 5061 127.0.0.1:7001", state.route(ByteString.of("bar"), false, false));
+    }
+
+    @Test
+    void testImportingSlotRequiresAsking() {
+        state.setImporting(12182, B);
+        assertEquals("MOVED 12182 127.0.0.1:7001", state.route(ByteString.of("foo"), false, false));
+        assertNull(state.route(ByteString.of("foo"), false, true));
+    }
+
+    @Test
+    void testUnassignedSlotIsClusterDown() {
+        ClusterState empty = new ClusterState(A);
+        assertTrue(empty.route(ByteString.of("foo"), false, false).startsWith("CLUSTERDOWN"));
+    }
+
+    @Test
+    void testSlotKeysIndex() {
+        state.keyAdded(ByteString.of("{tag}.a"));
+        state.keyAdded(ByteString.of("{tag}.b"));
+        int slot = HashSlot.slotOf("tag");
+        assertEquals(2, state.countKeysInSlot(slot));
+        assertEquals(1, state.getKeysInSlot(slot, 1).size());
+
+        state.keyRemoved(ByteString.of("{tag}.a"));
+        state.keyRemoved(ByteString.of("{tag}.b"));
+        assertEquals(0, state.countKeysInSlot(slot));
+        assertTrue(state.getKeysInSlot(slot, 10).isEmpty());
+    }
+
+    @Test
+    void testOwnershipChecks() {
+        assertThrows(IllegalStateException.class, () -> state.setMigrating(12182, B));
+        assertThrows(IllegalStateException.class, () -> state.setImporting(5061, B));
+        assertThrows(IllegalArgumentException.class, () -> state.assign(0, HashSlot.SLOT_COUNT, A));
+    }
+}
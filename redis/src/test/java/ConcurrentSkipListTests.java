@@ -0,0 +1,120 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.khundadze.data_structures.ConcurrentSkipList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentSkipListTests {
+
+    private ConcurrentSkipList<Integer, String> sl;
+
+    @BeforeEach
+    void setUp() {
+        sl = new ConcurrentSkipList<>();
+    }
+
+    @Test
+    void testInsertGetReplaceRemove() {
+        sl.insert(10, "ten");
+        sl.insert(5, "five");
+        sl.insert(10, "TEN");
+        assertEquals(2, sl.size(), "Replace should not grow the list");
+        assertEquals("TEN", sl.get(10).value);
+        assertEquals(5, sl.first().key);
+        assertEquals(10, sl.successor(sl.first()).key);
+
+        assertNotNull(sl.remove(5));
+        assertNull(sl.remove(5), "Second remove finds nothing");
+        assertFalse(sl.containsKey(5));
+        assertEquals(1, sl.size());
+        assertTrue(sl.toString().contains("10:TEN"));
+    }
+
+    @Test
+    void testCeiling() {
+        for (int i = 0; i < 100; i += 10)
+            sl.insert(i, "v" + i);
+        assertEquals(20, sl.ceiling(11).key);
+        assertEquals(20, sl.ceiling(20).key);
+        assertNull(sl.ceiling(91));
+
+        sl.remove(20);
+        assertEquals(30, sl.ceiling(11).key);
+    }
+
+    @Test
+    void testConcurrentInsertsAndRemoves() throws InterruptedException {
+        int threads = 8;
+        int perThread = 5_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        ConcurrentHashMap<Integer, Boolean> expected = new ConcurrentHashMap<>();
+
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // each thread owns the keys k with k % threads == id, and removes every third of them
+                for (int i = 0; i < perThread; i++) {
+                    int key = i * threads + id;
+                    sl.insert(key, "v" + key);
+                    if (i % 3 == 0)
+                        assertNotNull(sl.remove(key));
+                    else
+                        expected.put(key, true);
+                    sl.ceiling(ThreadLocalRandom.current().nextInt(threads * perThread)); // readers meanwhile
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+
+        assertEquals(expected.size(), sl.size());
+        int count = 0;
+        Integer previous = null;
+        for (ConcurrentSkipList.Node<Integer, String> n = sl.first(); n != null; n = sl.successor(n)) {
+            assertTrue(expected.containsKey(n.key), "Removed key still linked: " + n.key);
+            if (previous != null)
+                assertTrue(previous < n.key, "Keys out of order");
+            previous = n.key;
+            count++;
+        }
+        assertEquals(expected.size(), count);
+    }
+
+    @Test
+    void testRacingRemovesOnlyOneWins() throws InterruptedException {
+        for (int i = 0; i < 1000; i++)
+            sl.insert(i, "v");
+        ConcurrentHashMap<Integer, Integer> winners = new ConcurrentHashMap<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (sl.remove(i) != null)
+                        winners.merge(i, 1, Integer::sum);
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers)
+            worker.join();
+
+        assertEquals(1000, winners.size());
+        assertTrue(winners.values().stream().allMatch(n -> n == 1), "A key was removed twice");
+        assertTrue(sl.isEmpty());
+        assertNull(sl.first());
+    }
+}
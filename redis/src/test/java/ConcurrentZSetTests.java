@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.data_structures.ConcurrentZSet;
+import com.khundadze.data_structures.ZSet;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentZSetTests {
+
+    private ConcurrentZSet<String> zset;
+
+    @BeforeEach
+    void setUp() {
+        zset = new ConcurrentZSet<>();
+    }
+
+    @Test
+    void testAddUpdateAndRange() {
+        assertNull(zset.add(ByteString.of("Alice"), 10, "A"));
+        zset.add(ByteString.of("Bob"), 20, "B");
+        zset.add(ByteString.of("Charlie"), 15, "C");
+        assertEquals("A", zset.add(ByteString.of("Alice"), 30, "A2"));
+
+        List<ZSet.Entry<String>> all = zset.range(0, ByteString.EMPTY, 0, 10);
+        assertEquals(List.of("Charlie", "Bob", "Alice"), all.stream().map(n -> n.name().toString()).toList());
+        assertEquals(30, zset.get(ByteString.of("Alice")).score());
+        assertEquals("Bob", zset.query(0, ByteString.EMPTY, 1).name().toString());
+        assertThrows(UnsupportedOperationException.class, () -> zset.query(0, ByteString.EMPTY, -1));
+
+        assertTrue(zset.remove(ByteString.of("Bob")));
+        assertFalse(zset.remove(ByteString.of("Bob")));
+        assertEquals(2, zset.size());
+        assertEquals(List.of("Charlie", "Alice"),
+                zset.range(0, ByteString.EMPTY, 0, 10).stream().map(n -> n.name().toString()).toList());
+    }
+
+    @Test
+    void testConcurrentLeaderboardUpdates() throws InterruptedException {
+        int players = 200;
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long seed = t;
+            writers.add(new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < 20_000; i++) {
+                    ByteString name = ByteString.of("p" + random.nextInt(players));
+                    if (random.nextInt(10) == 0)
+                        zset.remove(name);
+                    else
+                        zset.add(name, random.nextInt(1000), "v");
+                }
+            }));
+        }
+        Thread reader = new Thread(() -> {
+            for (int i = 0; i < 2_000; i++)
+                zset.range(random(i), ByteString.EMPTY, 0, 20);
+        });
+        writers.forEach(Thread::start);
+        reader.start();
+        for (Thread writer : writers)
+            writer.join();
+        reader.join();
+
+        // quiescent: both indexes agree, every member appears exactly once at its current score
+        List<ZSet.Entry<String>> all = zset.range(Double.NEGATIVE_INFINITY, ByteString.EMPTY, 0, Integer.MAX_VALUE);
+        assertEquals(zset.size(), all.size());
+        Set<ByteString> seen = new HashSet<>();
+        double previous = Double.NEGATIVE_INFINITY;
+        for (ZSet.Entry<String> node : all) {
+            assertTrue(seen.add(node.name()), "Member listed twice: " + node.name());
+            assertEquals(node.score(), zset.get(node.name()).score());
+            assertTrue(previous <= node.score());
+            previous = node.score();
+        }
+    }
+
+    private static double random(int i) {
+        return (i * 7919) % 1000;
+    }
+}
@@ -0,0 +1,52 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import com.khundadze.cluster.HashSlot;
+import com.khundadze.data_structures.ByteString;
+
+import java.nio.charset.StandardCharsets;
+
+public class HashSlotTests {
+
+    @Test
+    public void testCrc16ReferenceValue() {
+        byte[] data = "123456789".getBytes(StandardCharsets.UTF_8);
+        assertEquals(0x31C3, HashSlot.crc16(data, 0, data.length));
+    }
+
+    @Test
+    public void testKnownSlots() {
+        assertEquals(12182, HashSlot.slotOf("foo"));
+        assertEquals(5061, HashSlot.slotOf("bar"));
+        assertEquals(0, HashSlot.slotOf(""));
+    }
+
+    @Test
+    public void testHashTagsShareSlot() {
+        int slot = HashSlot.slotOf("user1000");
+        assertEquals(slot, HashSlot.slotOf("{user1000}.following"));
+        assertEquals(slot, HashSlot.slotOf("{user1000}.followers"));
+    }
+
+    @Test
+    public void testEmptyOrUnclosedHashTagHashesWholeKey() {
+        assertEquals(HashSlot.slotOf("{}.key".getBytes(StandardCharsets.UTF_8)),
+                HashSlot.crc16("{}.key".getBytes(StandardCharsets.UTF_8), 0, 6) & 16383);
+        assertEquals(HashSlot.crc16("{abc".getBytes(StandardCharsets.UTF_8), 0, 4) & 16383,
+                HashSlot.slotOf("{abc"));
+    }
+
+    @Test
+    public void testByteStringKeysMatchTextKeys() {
+        for (String key : new String[] { "foo", "", "{user1000}.following", "{}.key", "{abc", "a{b}c{d}", "}{x}" })
+            assertEquals(HashSlot.slotOf(key), HashSlot.slotOf(ByteString.of(key)), key);
+    }
+
+    @Test
+    public void testSlotRange() {
+        for (int i = 0; i < 1000; i++) {
+            int slot = HashSlot.slotOf("key:" + i);
+            assertTrue(slot >= 0 && slot < HashSlot.SLOT_COUNT);
+        }
+    }
+}
@@ -1,5 +1,9 @@
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
 import org.junit.jupiter.api.Test;
 import com.khundadze.data_structures.HashTable;
 
@@ -86,4 +90,89 @@ public class HashTableTests {
         assertTrue(keys[0].equals(1) || keys[1].equals(1));
         assertTrue(keys[0].equals(2) || keys[1].equals(2));
     }
+
+    @Test
+    public void testScanVisitsEveryKeyAcrossResizes() {
+        HashTable<Integer, String> map = new HashTable<>();
+        for (int i = 0; i < 100; i++)
+            map.put(i, "v");
+
+        Set<Integer> seen = new HashSet<>();
+        int cursor = 0;
+        int steps = 0;
+        do {
+            cursor = map.scan(cursor, (key, value) -> seen.add(key));
+            if (++steps == 10) { // grow the table mid-walk
+                for (int i = 100; i < 1000; i++)
+                    map.put(i, "v");
+            }
+        } while (cursor != 0);
+
+        for (int i = 0; i < 100; i++)
+            assertTrue(seen.contains(i), "Key present for the whole scan was missed: " + i);
+    }
+
+    @Test
+    public void testEnsureCapacityPresizesOnce() {
+        HashTable<Integer, String> map = new HashTable<>();
+        for (int i = 0; i < 10; i++)
+            map.put(i, "v" + i);
+
+        map.ensureCapacity(10_000);
+        int capacity = map.capacity();
+        assertTrue(capacity * 0.75 >= 10_000);
+        for (int i = 10; i < 10_000; i++)
+            map.put(i, "v" + i);
+
+        assertEquals(capacity, map.capacity(), "Bulk insert within the reserved size must not resize");
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++)
+            assertEquals("v" + i, map.get(i));
+
+        map.ensureCapacity(5);
+        assertEquals(capacity, map.capacity(), "ensureCapacity never shrinks");
+    }
+
+    @Test
+    public void testRemoveShrinksSparseTables() {
+        HashTable<Integer, String> map = new HashTable<>();
+        for (int i = 0; i < 100_000; i++)
+            map.put(i, "v");
+        int grown = map.capacity();
+
+        for (int i = 0; i < 99_990; i++)
+            map.remove(i);
+        assertTrue(map.capacity() < grown / 1000, "capacity " + map.capacity() + " after mass removal");
+        for (int i = 99_990; i < 100_000; i++)
+            assertEquals("v", map.get(i));
+    }
+
+    @Test
+    public void testRandomKeyOnASparseTable() {
+        HashTable<Integer, String> map = new HashTable<>();
+        map.ensureCapacity(1 << 20); // presized, never shrunk by remove()
+        map.put(7, "v");
+        map.put(8, "v");
+
+        SplittableRandom random = new SplittableRandom(1);
+        Set<Integer> seen = new HashSet<>();
+        for (int i = 0; i < 100; i++)
+            seen.add(map.randomKey(random));
+        assertEquals(Set.of(7, 8), seen);
+        assertNull(new HashTable<Integer, String>().randomKey(random));
+    }
+
+    @Test
+    public void testForEach() {
+        HashTable<Integer, String> map = new HashTable<>();
+        for (int i = 0; i < 1000; i++)
+            map.put(i, "v" + i);
+
+        Set<Integer> seen = new HashSet<>();
+        map.forEach((key, value) -> {
+            assertEquals("v" + key, value);
+            seen.add(key);
+        });
+        assertEquals(1000, seen.size());
+    }
 }
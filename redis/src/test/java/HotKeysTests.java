@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.stats.CountMinSketch;
+import com.khundadze.stats.HotKeys;
+
+class HotKeysTests {
+
+    @Test
+    void testSketchNeverUndercounts() {
+        CountMinSketch sketch = new CountMinSketch(4, 256);
+        int[] truth = new int[2000];
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 50_000; i++) {
+            int k = random.nextInt(truth.length);
+            truth[k]++;
+            sketch.add(ByteString.of("key:" + k), 1);
+        }
+        for (int k = 0; k < truth.length; k++)
+            assertTrue(sketch.estimate(ByteString.of("key:" + k)) >= truth[k]);
+
+        sketch.decay();
+        sketch.clear();
+        assertEquals(0, sketch.estimate(ByteString.of("key:1")));
+    }
+
+    @Test
+    void testFindsTheHeavyHitters() {
+        HotKeys hotkeys = new HotKeys(8, 1);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 50_000; i++) {
+            // three hot keys take half the traffic, the rest is spread over 10k keys
+            int r = random.nextInt(6);
+            String key = r < 3 ? "hot:" + r : "cold:" + random.nextInt(10_000);
+            hotkeys.access(ByteString.of(key));
+        }
+
+        List<HotKeys.HotKey> top = hotkeys.top(3);
+        assertEquals(3, top.size());
+        for (HotKeys.HotKey hot : top) {
+            assertTrue(hot.key().toString().startsWith("hot:"), hot.toString());
+            assertTrue(hot.count() >= 8000, hot.toString());
+        }
+        assertTrue(top.get(0).count() >= top.get(2).count(), "Hottest first");
+    }
+
+    @Test
+    void testSamplingScalesCountsAndReset() {
+        HotKeys hotkeys = new HotKeys(4, 10);
+        for (int i = 0; i < 20_000; i++)
+            hotkeys.access(ByteString.of("k"));
+
+        long count = hotkeys.top(1).get(0).count();
+        assertTrue(count > 15_000 && count < 25_000, "Sampled 1 in 10, weighted by 10: " + count);
+
+        hotkeys.reset();
+        assertTrue(hotkeys.top(10).isEmpty());
+        new HotKeys(4, 0).access(ByteString.of("k")); // disabled: a no-op
+    }
+}
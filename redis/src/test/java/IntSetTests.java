@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.data_structures.IntSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntSetTests {
+
+    private IntSet set;
+
+    @BeforeEach
+    void setUp() {
+        set = new IntSet();
+    }
+
+    private static IntSet of(long... values) {
+        IntSet s = new IntSet();
+        for (long v : values)
+            s.add(v);
+        return s;
+    }
+
+    @Test
+    void testAddKeepsSortedAndDistinct() {
+        assertTrue(set.add(5));
+        assertTrue(set.add(-3));
+        assertTrue(set.add(100));
+        assertTrue(set.add(7));
+        assertFalse(set.add(5));
+
+        assertEquals(4, set.size());
+        assertEquals("[-3, 5, 7, 100]", set.toString());
+        assertTrue(set.contains(7));
+        assertFalse(set.contains(6));
+    }
+
+    @Test
+    void testRemove() {
+        set = of(1, 2, 3);
+        assertTrue(set.remove(2));
+        assertFalse(set.remove(2));
+        assertEquals("[1, 3]", set.toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> set.get(2));
+    }
+
+    @Test
+    void testMerges() {
+        IntSet a = of(1, 3, 5, 7, 9);
+        IntSet b = of(3, 4, 5, 10);
+
+        assertEquals("[3, 5]", IntSet.intersect(a, b).toString());
+        assertEquals("[1, 3, 4, 5, 7, 9, 10]", IntSet.union(a, b).toString());
+        assertEquals("[1, 7, 9]", IntSet.difference(a, b).toString());
+        assertEquals("[4, 10]", IntSet.difference(b, a).toString());
+
+        IntSet empty = IntSet.intersect(of(1), of(2));
+        assertTrue(empty.isEmpty());
+        assertTrue(empty.add(42), "Results stay writable");
+    }
+}
@@ -0,0 +1,48 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.data_structures.ZSet;
+import com.khundadze.lazyfree.LazyFree;
+
+class LazyFreeTests {
+
+    private static ZSet<Object> zsetOf(int size) {
+        ZSet<Object> zset = new ZSet<>();
+        for (int i = 0; i < size; i++)
+            zset.add(ByteString.of("k" + i), i, "v");
+        return zset;
+    }
+
+    @Test
+    void testEffort() {
+        assertEquals(1, LazyFree.effortOf("value"));
+        assertEquals(10, LazyFree.effortOf(zsetOf(10)));
+    }
+
+    @Test
+    void testOnlyBigLazyDeletesAreCounted() {
+        LazyFree lazyfree = new LazyFree(64, false);
+
+        lazyfree.recordLazyFreed(zsetOf(10));
+        assertEquals(0, lazyfree.freed());
+        lazyfree.recordLazyFreed(zsetOf(1000));
+        assertEquals(1, lazyfree.freed());
+    }
+
+    @Test
+    void testValuesAreOnlyDetached() {
+        LazyFree lazyfree = new LazyFree(64, false);
+        ZSet<Object> big = zsetOf(1000);
+
+        lazyfree.recordLazyFreed(big);
+        assertEquals(1000, big.size()); // nothing is walked or unlinked, the collector reclaims it
+    }
+
+    @Test
+    void testServerDelPolicy() {
+        assertFalse(new LazyFree().lazyServerDel());
+        assertTrue(new LazyFree(64, true).lazyServerDel());
+    }
+}
@@ -0,0 +1,70 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.server_client.NioClient;
+import com.khundadze.server_client.NioClientPool;
+
+class NioClientPoolTests {
+
+    private NioClientPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        int port = NioServerTests.launch();
+        NioServerTests.connect(port).close(); // wait until it listens
+        pool = new NioClientPool("localhost", port, 2, 1, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void testBorrowedConnectionIsOutOfTheSharedRotation() throws Exception {
+        NioClient borrowed = pool.borrow();
+        assertEquals("OK", borrowed.call("MULTI").get(5, TimeUnit.SECONDS));
+        assertEquals("QUEUED", borrowed.call("SET", "tx", "1").get(5, TimeUnit.SECONDS));
+
+        // other callers go round-robin meanwhile; none of their commands may join the transaction
+        List<CompletableFuture<Object>> replies = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            NioClient client = pool.next();
+            assertNotSame(borrowed, client);
+            replies.add(client.call("SET", "k" + i, "v"));
+        }
+        for (CompletableFuture<Object> reply : replies)
+            assertEquals("OK", reply.get(5, TimeUnit.SECONDS));
+        assertNull(pool.next().call("GET", "tx").get(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of("OK"), borrowed.call("EXEC").get(5, TimeUnit.SECONDS));
+        pool.release(borrowed);
+        assertSame(borrowed, pool.borrow(), "Released connections are reused");
+    }
+
+    @Test
+    void testBorrowWaitsForAReleaseAtTheLimit() throws Exception {
+        NioClient first = pool.borrow();
+        CompletableFuture<NioClient> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(second.isDone(), "Only one exclusive connection is allowed");
+
+        pool.release(first);
+        assertSame(first, second.get(5, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> pool.release(pool.next()));
+    }
+}
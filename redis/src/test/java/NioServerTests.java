@@ -0,0 +1,321 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.server_client.NioClient;
+import com.khundadze.server_client.NioServer;
+import com.khundadze.server_client.ServerErrorException;
+
+/** Commands end to end: one server for the class, a fresh connection and keyspace per test */
+class NioServerTests {
+
+    private static int port;
+
+    private NioClient client;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        port = launch();
+    }
+
+    /** Starts a standalone server on a free port, on a daemon thread; returns the port */
+    static int launch() throws IOException {
+        int free;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            free = probe.getLocalPort();
+        }
+        Thread server = new Thread(() -> new NioServer().start(free), "test-server-" + free);
+        server.setDaemon(true);
+        server.start();
+        return free;
+    }
+
+    @BeforeEach
+    void connect() throws Exception {
+        client = connect(port);
+        call("FLUSHALL");
+    }
+
+    @AfterEach
+    void disconnect() {
+        client.close();
+    }
+
+    static NioClient connect(int port) throws InterruptedException {
+        for (int attempt = 0;; attempt++) {
+            try {
+                return new NioClient("localhost", port);
+            } catch (IOException e) { // the server thread may not be listening yet
+                if (attempt == 50)
+                    throw new IllegalStateException("Server did not start", e);
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    Object call(Object... args) throws Exception {
+        return call(client, args);
+    }
+
+    static Object call(NioClient client, Object... args) throws Exception {
+        return client.call(args).get(5, TimeUnit.SECONDS);
+    }
+
+    /** The error reply of a command that must fail */
+    static String error(NioClient client, Object... args) throws Exception {
+        try {
+            Object reply = call(client, args);
+            fail("Expected an error reply, got " + reply);
+            return null;
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ServerErrorException, e.getCause().toString());
+            return e.getCause().getMessage();
+        }
+    }
+
+    String error(Object... args) throws Exception {
+        return error(client, args);
+    }
+
+    @Test
+    void testArityIsCheckedBeforeDispatch() throws Exception {
+        assertTrue(error("SET").contains("Wrong number of arguments"));
+        assertTrue(error("GET", "a", "b").contains("Wrong number of arguments"));
+        assertTrue(error("SADD", "s").contains("Wrong number of arguments"));
+        assertEquals("PONG", call("PING"), "The connection and the server survive");
+    }
+
+    @Test
+    void testZqueryRejectsNegativeOffsetAndCount() throws Exception {
+        call("SET", "a", "1", "1");
+        assertTrue(error("ZQUERY", "0", "", "-1", "10").contains("must not be negative"));
+        assertTrue(error("ZQUERY", "0", "", "0", "-10").contains("must not be negative"));
+        assertTrue(error("ZQUERY", "abc", "", "0", "10").startsWith("ERR"));
+        assertEquals(List.of("a", "1.0"), call("ZQUERY", "0", "", "0", "10"));
+    }
+
+    @Test
+    void testMultiQueuesCommandsUntilExec() throws Exception {
+        assertEquals("OK", call("MULTI"));
+        assertEquals("QUEUED", call("SET", "a", "1"));
+        assertEquals("QUEUED", call("GET", "a"));
+
+        try (NioClient other = connect(port)) {
+            assertNull(call(other, "GET", "a"), "Queued writes are invisible before EXEC");
+        }
+        assertEquals(List.of("OK", "1"), call("EXEC"));
+        assertTrue(error("EXEC").contains("EXEC without MULTI"));
+    }
+
+    @Test
+    void testDiscardDropsTheQueue() throws Exception {
+        call("MULTI");
+        call("SET", "a", "1");
+        assertEquals("OK", call("DISCARD"));
+        assertNull(call("GET", "a"));
+        assertTrue(error("DISCARD").contains("DISCARD without MULTI"));
+    }
+
+    @Test
+    void testExecAbortsAfterQueueTimeErrors() throws Exception {
+        // unknown command: fails while parsing, before the command is known
+        call("MULTI");
+        call("SET", "a", "1");
+        error("NOSUCHCOMMAND", "x");
+        call("SET", "b", "2");
+        assertTrue(error("EXEC").startsWith("EXECABORT"));
+
+        // wrong number of arguments
+        call("MULTI");
+        call("SET", "a", "1");
+        error("GET");
+        assertTrue(error("EXEC").startsWith("EXECABORT"));
+
+        assertNull(call("GET", "a"), "Nothing of an aborted transaction runs");
+        assertNull(call("GET", "b"));
+
+        // the flag doesn't leak into the next transaction
+        call("MULTI");
+        call("SET", "a", "1");
+        assertEquals(List.of("OK"), call("EXEC"));
+    }
+
+    @Test
+    void testWatchAbortsExecAfterAConcurrentWrite() throws Exception {
+        call("SET", "a", "0");
+        assertEquals("OK", call("WATCH", "a"));
+        try (NioClient other = connect(port)) {
+            call(other, "SET", "a", "2");
+        }
+        call("MULTI");
+        call("SET", "a", "1");
+        assertNull(call("EXEC"), "A WATCHed key changed, EXEC replies nil");
+        assertEquals("2", call("GET", "a"));
+
+        // untouched watched keys let EXEC through, and EXEC unwatches everything
+        call("WATCH", "a");
+        call("MULTI");
+        call("SET", "a", "3");
+        assertEquals(List.of("OK"), call("EXEC"));
+        assertEquals("3", call("GET", "a"));
+    }
+
+    @Test
+    void testExecIsNotChargedForItsQueuedCommands() throws Exception {
+        Object[] sadd = new Object[2 + 200_000];
+        sadd[0] = "SADD";
+        sadd[1] = "big";
+        for (int i = 0; i < 200_000; i++)
+            sadd[2 + i] = "m" + i;
+        call(sadd);
+
+        call("MULTI");
+        for (int i = 0; i < 5; i++)
+            call("SMEMBERS", "big");
+        call("EXEC");
+
+        String info = (String) call("INFO", "commandstats");
+        long smembers = usec(info, "smembers");
+        long exec = usec(info, "exec");
+        assertTrue(smembers > 0);
+        assertTrue(exec < smembers, "EXEC " + exec + "us includes its queued SMEMBERS " + smembers + "us");
+    }
+
+    @Test
+    void testSrandmemberRejectsHugeNegativeCounts() throws Exception {
+        call("SADD", "s", "a", "b");
+        assertTrue(error("SRANDMEMBER", "s", "-9999999999").contains("value is out of range"));
+        assertEquals(3, ((List<?>) call("SRANDMEMBER", "s", "-3")).size());
+    }
+
+    @Test
+    void testSrandmemberAfterMassSrem() throws Exception {
+        Object[] sadd = new Object[2 + 100_000];
+        Object[] srem = new Object[2 + 100_000 - 1];
+        sadd[0] = "SADD";
+        srem[0] = "SREM";
+        sadd[1] = srem[1] = "s";
+        for (int i = 0; i < 100_000; i++) {
+            sadd[2 + i] = "m" + i;
+            if (i > 0)
+                srem[1 + i] = "m" + i;
+        }
+        call(sadd);
+        assertEquals(99_999L, call(srem));
+        assertEquals(List.of("m0", "m0"), call("SRANDMEMBER", "s", "-2"));
+    }
+
+    @Test
+    void testZaddFlags() throws Exception {
+        assertEquals(2L, call("ZADD", "z", "1", "a", "2", "b"));
+        assertEquals(1L, call("ZADD", "z", "NX", "5", "a", "3", "c"), "NX only adds");
+        assertEquals(0L, call("ZADD", "z", "XX", "5", "a", "9", "d"), "XX only updates");
+        assertEquals(Arrays.asList("5.0", "3.0", null), call("ZMSCORE", "z", "a", "c", "d"));
+
+        assertEquals(0L, call("ZADD", "z", "GT", "CH", "4", "a"));
+        assertEquals(1L, call("ZADD", "z", "GT", "CH", "6", "a"));
+        assertEquals(0L, call("ZADD", "z", "LT", "CH", "7", "a"));
+        assertEquals(1L, call("ZADD", "z", "LT", "CH", "1", "a"));
+        assertEquals(2L, call("ZADD", "z", "CH", "3", "a", "2", "b", "8", "e"), "CH counts changed plus added");
+
+        assertEquals("7.0", call("ZADD", "z", "INCR", "4", "a"));
+        assertNull(call("ZADD", "z", "NX", "INCR", "1", "a"), "INCR skipped by NX replies nil");
+        assertTrue(error("ZADD", "z", "INCR", "1", "a", "2", "b").contains("single increment-element pair"));
+        assertTrue(error("ZADD", "z", "NX", "XX", "1", "a").contains("not compatible"));
+        assertTrue(error("ZADD", "z", "GT", "LT", "1", "a").contains("not compatible"));
+        assertTrue(error("ZADD", "z", "nan", "a").contains("not a valid float"));
+
+        call("SET", "s", "v");
+        assertTrue(error("ZADD", "s", "1", "a").startsWith("WRONGTYPE"));
+    }
+
+    @Test
+    void testZaddAcceptsInfiniteScores() throws Exception {
+        assertEquals(3L, call("ZADD", "z", "inf", "a", "-inf", "b", "+INF", "c"));
+        assertEquals(List.of("inf", "-inf", "inf"), call("ZMSCORE", "z", "a", "b", "c"));
+        assertTrue(error("ZADD", "z", "INCR", "-inf", "a").contains("NaN"));
+    }
+
+    @Test
+    void testZaddIncrRepliesWithABulkString() throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write("ZADD zi INCR 1.5 a\r\n".getBytes(StandardCharsets.UTF_8));
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("$3", in.readLine());
+            assertEquals("1.5", in.readLine());
+        }
+    }
+
+    @Test
+    void testMsetnxIsAllOrNothing() throws Exception {
+        assertEquals(1L, call("MSETNX", "a", "1", "b", "2"));
+        assertEquals(0L, call("MSETNX", "b", "x", "c", "3"));
+        assertEquals(Arrays.asList("1", "2", null), call("MGET", "a", "b", "c"));
+        assertEquals("OK", call("MSET", "b", "x", "c", "3"));
+        assertEquals(Arrays.asList("1", "x", "3"), call("MGET", "a", "b", "c"));
+    }
+
+    @Test
+    void testDelCountsDeletedKeys() throws Exception {
+        call("MSET", "a", "1", "b", "2");
+        call("SADD", "s", "m");
+        call("ZADD", "z", "1", "m");
+        assertEquals(3L, call("DEL", "a", "missing", "s", "z"));
+        assertEquals(0L, call("DEL", "a", "s"));
+        assertEquals(1L, call("UNLINK", "b", "b"), "a key named twice is deleted once");
+    }
+
+    @Test
+    void testHelloRejectsUnknownProtocols() throws Exception {
+        assertEquals("NOPROTO unsupported protocol version", error("HELLO", "4"));
+        assertEquals(List.of("server", "redis", "proto", 2L), call("HELLO", "2"));
+    }
+
+    @Test
+    void testDisconnectedTrackingClientsAreForgotten() throws Exception {
+        call("SET", "a", "1");
+        call("SET", "b", "2");
+        try (NioClient cached = new NioClient("localhost", port, true)) {
+            call(cached, "GET", "a");
+            call(cached, "GET", "b");
+            assertEquals(2, trackedKeys());
+        }
+        // a and b are never written again, the closed connection must not stay registered as their reader
+        for (int i = 0; i < 100 && trackedKeys() != 0; i++)
+            Thread.sleep(20);
+        assertEquals(0, trackedKeys());
+    }
+
+    private long trackedKeys() throws Exception {
+        String info = (String) call("INFO", "stats");
+        for (String line : info.split("\r\n")) {
+            if (line.startsWith("tracking_total_keys:"))
+                return Long.parseLong(line.substring(line.indexOf(':') + 1));
+        }
+        throw new AssertionError("No tracking_total_keys in " + info);
+    }
+
+    private static long usec(String info, String command) {
+        for (String line : info.split("\r\n")) {
+            if (line.startsWith("cmdstat_" + command + ":")) {
+                String usec = line.substring(line.indexOf("usec=") + 5);
+                return Long.parseLong(usec.substring(0, usec.indexOf(',')));
+            }
+        }
+        throw new AssertionError("No stats for " + command + " in " + info);
+    }
+}
@@ -0,0 +1,104 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.pubsub.GlobPattern;
+import com.khundadze.pubsub.PubSub;
+
+class PubSubTests {
+
+    private PubSub<String> pubsub;
+    private List<String> delivered;
+    private List<ByteBuffer> frames;
+
+    @BeforeEach
+    void setUp() {
+        pubsub = new PubSub<>();
+        delivered = new ArrayList<>();
+        frames = new ArrayList<>();
+    }
+
+    private int publish(String channel, String message) {
+        return pubsub.publish(channel, message, (subscriber, frame) -> {
+            delivered.add(subscriber + "<-" + StandardCharsets.UTF_8.decode(frame.duplicate()));
+            frames.add(frame);
+        });
+    }
+
+    @Test
+    void testChannelFanOut() {
+        pubsub.subscribe("c1", "news");
+        pubsub.subscribe("c2", "news");
+        pubsub.subscribe("c3", "sport");
+
+        assertEquals(2, publish("news", "hi"));
+        assertEquals(List.of("c1<-*3\r\n$7\r\nmessage\r\n$4\r\nnews\r\n$2\r\nhi\r\n",
+                "c2<-*3\r\n$7\r\nmessage\r\n$4\r\nnews\r\n$2\r\nhi\r\n"), delivered);
+        assertEquals(0, publish("weather", "hi"));
+    }
+
+    @Test
+    void testFramesShareOneReadOnlyEncoding() {
+        pubsub.subscribe("c1", "news");
+        pubsub.subscribe("c2", "news");
+        publish("news", "payload");
+
+        assertEquals(2, frames.size());
+        assertTrue(frames.get(0).isReadOnly());
+        // consuming one subscriber's view doesn't move the other one
+        frames.get(0).position(frames.get(0).limit());
+        assertEquals(0, frames.get(1).position());
+        assertEquals(frames.get(0).capacity(), frames.get(1).capacity());
+    }
+
+    @Test
+    void testPatternSubscriptions() {
+        pubsub.psubscribe("c1", "news.*");
+        pubsub.subscribe("c2", "news.tech");
+
+        assertEquals(2, publish("news.tech", "x"));
+        assertTrue(delivered.contains("c1<-*4\r\n$8\r\npmessage\r\n$6\r\nnews.*\r\n$9\r\nnews.tech\r\n$1\r\nx\r\n"));
+        assertEquals(1, publish("news.art", "x"));
+        assertEquals(0, publish("old.news", "x"));
+    }
+
+    @Test
+    void testUnsubscribeAndCounts() {
+        assertTrue(pubsub.subscribe("c1", "a"));
+        assertFalse(pubsub.subscribe("c1", "a"));
+        pubsub.subscribe("c1", "b");
+        pubsub.psubscribe("c1", "x*");
+        assertEquals(3, pubsub.subscriptionCount("c1"));
+        assertArrayEquals(new String[] { "a", "b" }, pubsub.channelsOf("c1"));
+
+        assertTrue(pubsub.unsubscribe("c1", "a"));
+        assertFalse(pubsub.unsubscribe("c1", "a"));
+        assertEquals(2, pubsub.subscriptionCount("c1"));
+
+        pubsub.unsubscribeAll("c1");
+        assertEquals(0, pubsub.subscriptionCount("c1"));
+        assertEquals(0, pubsub.channelCount());
+        assertEquals(0, pubsub.patternCount());
+        assertEquals(0, publish("b", "x"));
+    }
+
+    @Test
+    void testGlobPatterns() {
+        assertTrue(new GlobPattern("h?llo").matches("hello"));
+        assertTrue(new GlobPattern("h*llo").matches("heeeello"));
+        assertTrue(new GlobPattern("h[ae]llo").matches("hallo"));
+        assertFalse(new GlobPattern("h[ae]llo").matches("hillo"));
+        assertTrue(new GlobPattern("h[^e]llo").matches("hallo"));
+        assertFalse(new GlobPattern("h[^e]llo").matches("hello"));
+        assertTrue(new GlobPattern("h[a-c]llo").matches("hbllo"));
+        assertTrue(new GlobPattern("a.b\\*").matches("a.b*"));
+        assertFalse(new GlobPattern("a.b").matches("axb"));
+        assertTrue(new GlobPattern("[abc").matches("[abc"));
+    }
+}
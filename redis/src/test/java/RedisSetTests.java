@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.data_structures.RedisSet;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisSetTests {
+
+    private RedisSet set;
+
+    @BeforeEach
+    void setUp() {
+        set = new RedisSet();
+    }
+
+    private static ByteString m(String member) {
+        return ByteString.of(member);
+    }
+
+    private static RedisSet of(String... members) {
+        RedisSet s = new RedisSet();
+        for (String member : members)
+            s.add(m(member));
+        return s;
+    }
+
+    private static List<String> texts(RedisSet s) {
+        return s.members().stream().map(ByteString::toString).toList();
+    }
+
+    private static Set<String> sorted(RedisSet s) {
+        return new HashSet<>(texts(s));
+    }
+
+    @Test
+    void testIntegersStayIntset() {
+        assertTrue(set.add(m("10")));
+        assertTrue(set.add(m("-2")));
+        assertFalse(set.add(m("10")));
+        assertEquals("intset", set.encoding());
+        assertEquals(List.of("-2", "10"), texts(set));
+        assertTrue(set.contains(m("10")));
+        assertFalse(set.contains(m("010")));
+    }
+
+    @Test
+    void testNonCanonicalIntegersConvert() {
+        for (String member : new String[] { "007", "+1", "-0", "1.5", "99999999999999999999", "" }) {
+            RedisSet s = of("1");
+            s.add(m(member));
+            assertEquals("hashtable", s.encoding(), member);
+            assertTrue(s.contains(m(member)));
+            assertTrue(s.contains(m("1")));
+        }
+        assertEquals("intset", of("9223372036854775807", "-9223372036854775808").encoding());
+    }
+
+    @Test
+    void testConvertsWhenTooBig() {
+        for (int i = 0; i < RedisSet.MAX_INTSET_ENTRIES; i++)
+            set.add(m(Integer.toString(i)));
+        assertEquals("intset", set.encoding());
+
+        set.add(m(Integer.toString(RedisSet.MAX_INTSET_ENTRIES)));
+        assertEquals("hashtable", set.encoding());
+        assertEquals(RedisSet.MAX_INTSET_ENTRIES + 1, set.size());
+        assertTrue(set.contains(m("0")));
+        assertTrue(set.remove(m("0")));
+        assertFalse(set.contains(m("0")));
+    }
+
+    @Test
+    void testIntersect() {
+        // all intsets: merge
+        RedisSet merged = RedisSet.intersect(List.of(of("1", "2", "3", "4"), of("2", "4", "6"), of("4", "2")));
+        assertEquals(List.of("2", "4"), texts(merged));
+        assertEquals("intset", merged.encoding());
+
+        // mixed encodings: iterate the smallest, probe the rest
+        RedisSet mixed = RedisSet.intersect(List.of(of("a", "b", "1"), of("1", "b"), of("b", "1", "x", "y")));
+        assertEquals(Set.of("1", "b"), sorted(mixed));
+
+        assertTrue(RedisSet.intersect(List.of(of("a"), new RedisSet())).isEmpty());
+
+        // a single set is copied, not shared
+        RedisSet source = of("1", "2");
+        RedisSet copy = RedisSet.intersect(List.of(source));
+        copy.add(m("3"));
+        assertEquals(2, source.size());
+    }
+
+    @Test
+    void testUnionAndDifference() {
+        assertEquals(List.of("1", "2", "3"), texts(RedisSet.union(List.of(of("1", "3"), of("2", "3")))));
+        assertEquals(Set.of("1", "a", "b"), sorted(RedisSet.union(List.of(of("1", "a"), of("b")))));
+
+        assertEquals(List.of("1"), texts(RedisSet.difference(List.of(of("1", "2", "3"), of("2"), of("3")))));
+        assertEquals(Set.of("a"), sorted(RedisSet.difference(List.of(of("a", "b", "1"), of("b", "1")))));
+    }
+
+    @Test
+    void testRandomMembers() {
+        set = of("a", "b", "c", "d");
+        SplittableRandom random = new SplittableRandom(1);
+
+        List<ByteString> distinct = set.randomMembers(3, random);
+        assertEquals(3, new HashSet<>(distinct).size());
+        assertEquals(4, set.randomMembers(10, random).size());
+        assertEquals(10, set.randomMembers(-10, random).size());
+        assertTrue(set.contains(set.randomMember(random)));
+        assertNull(new RedisSet().randomMember(random));
+    }
+
+    @Test
+    void testRandomMembersCountIsBounded() {
+        RedisSet s = of("a", "b");
+        assertEquals(5, s.randomMembers(-5, new SplittableRandom(7)).size());
+        assertEquals(2, s.randomMembers(9_999_999_999L, new SplittableRandom(7)).size());
+        assertThrows(IllegalArgumentException.class, () -> s.randomMembers(-9_999_999_999L, new SplittableRandom(7)));
+        assertThrows(IllegalArgumentException.class, () -> s.randomMembers(Long.MIN_VALUE, new SplittableRandom(7)));
+    }
+}
@@ -0,0 +1,183 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.model.ResponseDto;
+import com.khundadze.model.ServerType;
+import com.khundadze.protocol.RespProtocolException;
+import com.khundadze.protocol.RespReader;
+import com.khundadze.protocol.RespWriter;
+
+class RespReaderTests {
+
+    private RespReader reader;
+
+    @BeforeEach
+    void setUp() {
+        reader = new RespReader();
+    }
+
+    private void feed(String s) {
+        reader.feed(ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testScalarTypes() {
+        feed("+OK\r\n-ERR boom\r\n:42\r\n$5\r\nhello\r\n$-1\r\n_\r\n,1.5\r\n#t\r\n");
+        assertEquals("OK", reader.next());
+        assertEquals(new RespReader.ErrorReply("ERR boom"), reader.next());
+        assertEquals(42L, reader.next());
+        assertEquals("hello", reader.next());
+        assertNull(reader.next());
+        assertNull(reader.next());
+        assertEquals(1.5, reader.next());
+        assertEquals(true, reader.next());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    void testNestedAggregatesAndPush() {
+        feed("*2\r\n:1\r\n*1\r\n$1\r\na\r\n>2\r\n$10\r\ninvalidate\r\n*1\r\n$3\r\nfoo\r\n%1\r\n+k\r\n:2\r\n");
+        assertEquals(List.of(1L, List.of("a")), reader.next());
+        RespReader.Push push = (RespReader.Push) reader.next();
+        assertEquals("invalidate", push.kind());
+        assertEquals(List.of("foo"), push.items().get(1));
+        assertEquals(Map.of("k", 2L), reader.next());
+    }
+
+    @Test
+    void testPartialFramesWaitForMoreBytes() {
+        feed("*2\r\n$5\r\nhel");
+        assertFalse(reader.hasNext());
+        feed("lo\r\n:");
+        assertFalse(reader.hasNext());
+        feed("7\r\n");
+        assertEquals(List.of("hello", 7L), reader.next());
+        assertEquals(0, reader.buffered());
+    }
+
+    @Test
+    void testRepliesLargerThanTheBuffer() {
+        String big = "x".repeat(100_000);
+        byte[] frame = ("$" + big.length() + "\r\n" + big + "\r\n").getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < frame.length; i += 1000) {
+            assertFalse(reader.hasNext());
+            reader.feed(ByteBuffer.wrap(frame, i, Math.min(1000, frame.length - i)));
+        }
+        assertEquals(big, reader.next());
+    }
+
+    @Test
+    void testRoundTripWithWriter() {
+        reader.feed(RespWriter.encode(new ResponseDto(ServerType.SERVER_ARRAY,
+                List.of("a", 1, new ResponseDto(ServerType.SERVER_ERROR, "MOVED 1 x:1")))));
+        reader.feed(RespWriter.encode(new ResponseDto(ServerType.SERVER_NIL, null), true));
+        reader.feed(RespWriter.encodePush(true, "invalidate", null));
+
+        assertEquals(List.of("a", 1L, new RespReader.ErrorReply("MOVED 1 x:1")), reader.next());
+        assertNull(reader.next());
+        assertEquals(new RespReader.Push(Arrays.asList("invalidate", null)), reader.next());
+    }
+
+    @Test
+    void testErrorRepliesStayOnOneLine() {
+        reader.feed(RespWriter.encode(new ResponseDto(ServerType.SERVER_ERROR, "bad x\r\n+OK\r\n")));
+        reader.feed(RespWriter.encode(new ResponseDto(ServerType.SERVER_STRING, "after")));
+
+        assertEquals(new RespReader.ErrorReply("ERR bad x  +OK  "), reader.next());
+        assertEquals("after", reader.next(), "No reply was injected in between");
+    }
+
+    @Test
+    void testInlineAndPipelinedCommands() {
+        RespReader server = new RespReader(true);
+        server.feed(ByteBuffer.wrap("SET k  v 1\r\nGET k\n*2\r\n$3\r\nGET\r\n$3\r\na b\r\nDEL".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of("SET", "k", "v", "1"), server.next());
+        assertEquals(List.of("GET", "k"), server.next());
+        assertEquals(List.of("GET", "a b"), server.next());
+        assertFalse(server.hasNext(), "Inline command without newline is incomplete");
+        server.feed(ByteBuffer.wrap(" k\n".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(List.of("DEL", "k"), server.next());
+    }
+
+    @Test
+    void testBinaryModeKeepsRawBytes() {
+        byte[] value = { (byte) 0xFF, 0, '\r', '\n', (byte) 0xC3 }; // not valid UTF-8
+        RespReader server = new RespReader(true, true);
+        server.feed(RespWriter.encodeCommand("SET", "k", ByteString.copyOf(value)));
+        server.feed(ByteBuffer.wrap("GET  k\r\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of(ByteString.of("SET"), ByteString.of("k"), ByteString.copyOf(value)), server.next());
+        assertEquals(List.of(ByteString.of("GET"), ByteString.of("k")), server.next());
+
+        // and back out unchanged
+        ByteBuffer reply = RespWriter.encode(new ResponseDto(ServerType.SERVER_STRING, ByteString.copyOf(value)));
+        byte[] bytes = new byte[reply.remaining()];
+        reply.get(bytes);
+        byte[] expected = new byte[value.length + 6];
+        System.arraycopy("$5\r\n".getBytes(StandardCharsets.US_ASCII), 0, expected, 0, 4);
+        System.arraycopy(value, 0, expected, 4, value.length);
+        expected[expected.length - 2] = '\r';
+        expected[expected.length - 1] = '\n';
+        assertArrayEquals(expected, bytes);
+    }
+
+    @Test
+    void testProtocolErrors() {
+        feed("?what\r\n");
+        assertThrows(RespProtocolException.class, reader::hasNext);
+
+        RespReader other = new RespReader();
+        other.feed(ByteBuffer.wrap("$abc\r\n".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(RespProtocolException.class, other::hasNext);
+    }
+
+    @Test
+    void testOversizedAndNegativeLengthsAreRejected() {
+        for (String frame : List.of("*2147483647\r\n", "*2\r\n$2147483647\r\nab\r\n", "*1\r\n$-5\r\n",
+                "*-2\r\n", "*1\r\n%99999999999\r\n")) {
+            RespReader server = new RespReader(true, true);
+            server.feed(ByteBuffer.wrap(frame.getBytes(StandardCharsets.UTF_8)));
+            assertThrows(RespProtocolException.class, server::hasNext, frame);
+        }
+
+        RespReader server = new RespReader(true, true);
+        byte[] endless = new byte[RespReader.MAX_LINE_LENGTH + 10];
+        Arrays.fill(endless, (byte) 'a');
+        server.feed(ByteBuffer.wrap(endless));
+        assertThrows(RespProtocolException.class, server::hasNext, "Inline request without a newline");
+    }
+
+    @Test
+    void testLargeCommandFedInSmallPiecesParsesInLinearTime() {
+        int keys = 200_000;
+        StringBuilder command = new StringBuilder("*" + (1 + 2 * keys) + "\r\n$4\r\nMSET\r\n");
+        for (int i = 0; i < keys; i++) {
+            String key = "key:" + i;
+            command.append('$').append(key.length()).append("\r\n").append(key).append("\r\n$1\r\nv\r\n");
+        }
+        byte[] frame = command.toString().getBytes(StandardCharsets.UTF_8);
+
+        RespReader server = new RespReader(true, true);
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < frame.length; i += 4096) {
+                assertFalse(server.hasNext());
+                server.feed(ByteBuffer.wrap(frame, i, Math.min(4096, frame.length - i)));
+            }
+            List<?> args = (List<?>) server.next();
+            assertEquals(1 + 2 * keys, args.size());
+            assertEquals(ByteString.of("key:" + (keys - 1)), args.get(args.size() - 2));
+        });
+        assertEquals(0, server.buffered());
+    }
+}
@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.model.Command;
+import com.khundadze.stats.CommandStats;
+import com.khundadze.stats.ServerStats;
+import com.khundadze.stats.StatsFormat;
+
+class ServerStatsTests {
+
+    private ServerStats stats;
+    private ServerStats.Gauges gauges;
+
+    @BeforeEach
+    void setUp() {
+        stats = new ServerStats();
+        gauges = new ServerStats.Gauges(2, 0, 0, 0, 0, 5, 0, 0, 0, 0, false);
+    }
+
+    @Test
+    void testCommandCounters() {
+        CommandStats commands = stats.commands();
+        commands.record(Command.GET, 1_500, false);
+        commands.record(Command.GET, 2_500, true);
+        commands.reject(Command.GET);
+
+        assertEquals(2, commands.calls(Command.GET));
+        assertEquals(4_000, commands.nanos(Command.GET));
+        assertEquals(1, commands.failed(Command.GET));
+        assertEquals(1, commands.rejected(Command.GET));
+        assertEquals(2, commands.latency(Command.GET).getTotalCount());
+        assertFalse(commands.seen(Command.SET));
+        assertEquals(2, commands.totalCalls());
+    }
+
+    @Test
+    void testInfoSections() {
+        stats.commands().record(Command.SET, 10_000, false);
+
+        String all = StatsFormat.info(stats, gauges);
+        assertTrue(all.contains("# Server\r\n"));
+        assertTrue(all.contains("connected_clients:2\r\n"));
+        assertTrue(all.contains("cmdstat_set:calls=1,usec=10,usec_per_call=10.00,rejected_calls=0,failed_calls=0\r\n"));
+        assertTrue(all.contains("db0:keys=5\r\n"));
+
+        String one = StatsFormat.info(stats, gauges, "CommandStats");
+        assertTrue(one.startsWith("# Commandstats\r\n"));
+        assertFalse(one.contains("# Server"));
+    }
+
+    @Test
+    void testLatencyHistogramBuckets() {
+        stats.commands().record(Command.GET, 800, false); // <= 1us
+        stats.commands().record(Command.GET, 3_000, false); // <= 4us
+        stats.commands().record(Command.GET, 3_500, false);
+
+        List<Object> reply = StatsFormat.latencyHistogram(stats.commands(), List.of());
+        assertEquals("get", reply.get(0));
+        assertEquals(List.of("calls", 3L, "histogram_usec", List.of(1L, 1L, 4L, 3L)), reply.get(1));
+
+        assertTrue(StatsFormat.latencyHistogram(stats.commands(), List.of(Command.SET)).isEmpty());
+    }
+
+    @Test
+    void testPrometheusHistogramIsCumulative() {
+        stats.commands().record(Command.GET, 800, false);
+        stats.commands().record(Command.GET, 3_000, false);
+        stats.eventLoopCycle(50_000);
+
+        String text = StatsFormat.prometheus(stats, gauges);
+        assertTrue(text.contains("redis_connected_clients 2\n"));
+        assertTrue(text.contains("redis_commands_total{cmd=\"get\"} 2\n"));
+        assertTrue(text.contains("redis_commands_duration_seconds_bucket{cmd=\"get\",le=\"0.000001\"} 1\n"));
+        assertTrue(text.contains("redis_commands_duration_seconds_bucket{cmd=\"get\",le=\"0.000004\"} 2\n"));
+        assertTrue(text.contains("redis_commands_duration_seconds_bucket{cmd=\"get\",le=\"+Inf\"} 2\n"));
+        assertTrue(text.contains("redis_commands_duration_seconds_count{cmd=\"get\"} 2\n"));
+        assertTrue(text.contains("redis_eventloop_duration_seconds_count 1\n"));
+    }
+}
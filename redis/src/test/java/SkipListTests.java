@@ -100,4 +100,28 @@ public class SkipListTests {
             }
         }
     }
+
+    @Test
+    void testFingerInsertMatchesPlainInserts() {
+        SkipList<Integer, String>.Finger finger = sl.finger();
+        for (int i = 0; i < 2000; i += 2)
+            finger.insert(i, "v" + i);
+        // odd keys land between existing nodes, the repeat replaces in place
+        finger = sl.finger();
+        for (int i = 1; i < 2000; i += 2)
+            finger.insert(i, "v" + i);
+        finger.insert(1999, "last");
+        // out of order key: falls back to a search from the head
+        finger.insert(-5, "first");
+
+        assertEquals(2001, sl.size());
+        assertEquals("last", sl.get(1999).value);
+        SkipList.Node<Integer, String> node = sl.ceiling(-5);
+        for (int expected = -5; node != null; node = node.next[0]) {
+            assertEquals(expected, node.key);
+            expected = expected == -5 ? 0 : expected + 1;
+        }
+        for (int i = 0; i < 2000; i++)
+            assertEquals(i == 1999 ? "last" : "v" + i, sl.get(i).value);
+    }
 }
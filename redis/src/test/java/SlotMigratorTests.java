@@ -0,0 +1,128 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.cluster.ClusterNode;
+import com.khundadze.cluster.ClusterState;
+import com.khundadze.cluster.HashSlot;
+import com.khundadze.server_client.NioClient;
+import com.khundadze.server_client.NioServer;
+import com.khundadze.server_client.ServerErrorException;
+
+/** Live migrations between two cluster nodes, each on its own daemon thread */
+class SlotMigratorTests {
+
+    private static final int KEYS = 500; // several batches
+
+    @Test
+    void testNodesMigratingToEachOtherBothFinish() throws Exception {
+        int portA = freePort();
+        int portB = freePort();
+        String layout = "127.0.0.1:" + portA + "=0-8191,127.0.0.1:" + portB + "=8192-16383";
+        launch(portA, layout);
+        launch(portB, layout);
+
+        String tagA = tagInSlots(0, 8191);
+        String tagB = tagInSlots(8192, 16383);
+        int slotA = HashSlot.slotOf(tagA + "0");
+        int slotB = HashSlot.slotOf(tagB + "0");
+
+        try (NioClient a = NioServerTests.connect(portA);
+                NioClient b = NioServerTests.connect(portB);
+                NioClient watcher = NioServerTests.connect(portA)) {
+            for (int i = 0; i < KEYS; i++) {
+                call(a, "SET", tagA + i, "a" + i);
+                call(b, "SET", tagB + i, "b" + i);
+            }
+            call(watcher, "WATCH", tagA + "0");
+
+            call(b, "CLUSTER", "SETSLOT", slotA, "IMPORTING", "127.0.0.1:" + portA);
+            call(a, "CLUSTER", "SETSLOT", slotB, "IMPORTING", "127.0.0.1:" + portB);
+            call(a, "CLUSTER", "SETSLOT", slotA, "MIGRATING", "127.0.0.1:" + portB);
+            call(b, "CLUSTER", "SETSLOT", slotB, "MIGRATING", "127.0.0.1:" + portA);
+
+            awaitMoved(a, tagA + "0");
+            awaitMoved(b, tagB + "0");
+            for (int i = 0; i < KEYS; i++) {
+                assertEquals("a" + i, call(b, "GET", tagA + i));
+                assertEquals("b" + i, call(a, "GET", tagB + i));
+            }
+
+            // the key left node A through the DEL path, so the WATCH broke
+            call(watcher, "MULTI");
+            call(watcher, "PING");
+            assertNull(call(watcher, "EXEC"));
+        }
+    }
+
+    @Test
+    void testUnreachableTargetAbortsWithoutStallingTheNode() throws Exception {
+        int port = freePort();
+        int nowhere = freePort(); // nothing listens there
+        launch(port, "127.0.0.1:" + port + "=0-16383");
+
+        try (NioClient client = NioServerTests.connect(port)) {
+            call(client, "SET", "{t}a", "1");
+            int slot = HashSlot.slotOf("{t}a");
+            call(client, "CLUSTER", "SETSLOT", slot, "MIGRATING", "127.0.0.1:" + nowhere);
+
+            long start = System.nanoTime();
+            assertEquals("PONG", call(client, "PING"));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "The node waited on the connect");
+            Thread.sleep(200);
+            assertEquals("1", call(client, "GET", "{t}a"), "The aborted migration kept the key");
+        }
+    }
+
+    // ------------------------ Helper methods ------------------------
+
+    private static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+
+    private static void launch(int port, String layout) {
+        ClusterState cluster = new ClusterState(new ClusterNode("127.0.0.1", port));
+        cluster.applyLayout(layout);
+        Thread server = new Thread(() -> new NioServer(cluster).start(port), "test-node-" + port);
+        server.setDaemon(true);
+        server.start();
+    }
+
+    /** A {hashtag} whose keys land in the given slot range */
+    private static String tagInSlots(int from, int to) {
+        for (int i = 0;; i++) {
+            String tag = "{t" + i + "}";
+            int slot = HashSlot.slotOf(tag);
+            if (slot >= from && slot <= to)
+                return tag;
+        }
+    }
+
+    private static Object call(NioClient client, Object... args) throws Exception {
+        return client.call(args).get(5, TimeUnit.SECONDS);
+    }
+
+    /** Waits until the source node hands the slot of key over for good */
+    private static void awaitMoved(NioClient source, String key) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            try {
+                call(source, "GET", key);
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof ServerErrorException, e.getCause().toString());
+                if (e.getCause().getMessage().startsWith("MOVED"))
+                    return;
+            }
+            if (System.nanoTime() > deadline)
+                fail("Slot of " + key + " was not migrated");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.khundadze.data_structures.ByteString;
+import com.khundadze.stats.SlowLog;
+
+class SlowLogTests {
+
+    @Test
+    void testThreshold() {
+        SlowLog slowlog = new SlowLog(100, 4);
+        assertFalse(slowlog.isSlow(99_999));
+        assertTrue(slowlog.isSlow(100_000));
+
+        assertFalse(new SlowLog(-1, 4).isSlow(Long.MAX_VALUE));
+        assertTrue(new SlowLog(0, 4).isSlow(0));
+    }
+
+    @Test
+    void testRingKeepsNewestFirst() {
+        SlowLog slowlog = new SlowLog(0, 3);
+        for (int i = 0; i < 5; i++)
+            slowlog.add("GET", new ByteString[] { ByteString.of("k" + i) }, i * 1000L, "127.0.0.1:1234");
+
+        assertEquals(3, slowlog.len());
+        List<SlowLog.Entry> entries = slowlog.get(10);
+        assertEquals(3, entries.size());
+        assertEquals(4, entries.get(0).id());
+        assertArrayEquals(new String[] { "GET", "k4" }, entries.get(0).args());
+        assertEquals(4, entries.get(0).durationMicros());
+        assertEquals(2, entries.get(2).id());
+        assertEquals("127.0.0.1:1234", entries.get(2).client());
+
+        assertEquals(1, slowlog.get(1).size());
+    }
+
+    @Test
+    void testReset() {
+        SlowLog slowlog = new SlowLog(0, 3);
+        slowlog.add("KEYS", new ByteString[0], 1000, "c");
+        slowlog.reset();
+        assertEquals(0, slowlog.len());
+        assertTrue(slowlog.get(10).isEmpty());
+
+        slowlog.add("KEYS", new ByteString[0], 1000, "c");
+        assertEquals(1, slowlog.get(10).get(0).id()); // ids keep counting
+    }
+
+    @Test
+    void testArgumentsAreTruncated() {
+        SlowLog slowlog = new SlowLog(0, 1);
+        ByteString[] args = new ByteString[39];
+        args[0] = ByteString.of("x".repeat(200));
+        for (int i = 1; i < args.length; i++)
+            args[i] = ByteString.of("a" + i);
+        slowlog.add("SET", args, 0, "c");
+
+        String[] logged = slowlog.get(1).get(0).args();
+        assertEquals(32, logged.length);
+        assertEquals("SET", logged[0]);
+        assertEquals("x".repeat(128) + "... (72 more bytes)", logged[1]);
+        assertEquals("a29", logged[30]);
+        assertEquals("... (9 more arguments)", logged[31]);
+    }
+
+    @Test
+    void testLongArgumentsAreCutInBytes() {
+        SlowLog slowlog = new SlowLog(0, 1);
+        slowlog.add("SET", new ByteString[] { ByteString.of("k"), ByteString.of("\u00e9".repeat(100)) }, 0, "c");
+
+        String[] logged = slowlog.get(1).get(0).args();
+        assertEquals("\u00e9".repeat(64) + "... (72 more bytes)", logged[2], "200 bytes of two-byte characters");
+    }
+}
@@ -1,7 +1,11 @@
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.khundadze.data_structures.ByteString;
 import com.khundadze.data_structures.ZSet;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -17,72 +21,132 @@ class ZSetTests {
 
     @Test
     void testAddAndLookup() {
-        zset.add("Alice", 10, "ValueA");
-        zset.add("Bob", 20, "ValueB");
-        zset.add("Charlie", 15, "ValueC");
-
-        assertNotNull(zset.get("Alice"));
-        assertEquals(20, zset.get("Bob").score);
-        assertEquals("Charlie", zset.get("Charlie").name);
-        assertNull(zset.get("NonExistent"));
+        zset.add(ByteString.of("Alice"), 10, "ValueA");
+        zset.add(ByteString.of("Bob"), 20, "ValueB");
+        zset.add(ByteString.of("Charlie"), 15, "ValueC");
+
+        assertNotNull(zset.get(ByteString.of("Alice")));
+        assertEquals(20, zset.get(ByteString.of("Bob")).score);
+        assertEquals("Charlie", zset.get(ByteString.of("Charlie")).name.toString());
+        assertNull(zset.get(ByteString.of("NonExistent")));
     }
 
     @Test
     void testUpdateScore() {
-        zset.add("Alice", 10, "ValueA");
-        double oldScore = zset.get("Alice").score;
+        zset.add(ByteString.of("Alice"), 10, "ValueA");
+        double oldScore = zset.get(ByteString.of("Alice")).score;
 
         // update Alice's score
-        zset.add("Alice", 30, "ValueA_updated");
-        assertEquals(30, zset.get("Alice").score);
-        assertNotEquals(oldScore, zset.get("Alice").score);
+        zset.add(ByteString.of("Alice"), 30, "ValueA_updated");
+        assertEquals(30, zset.get(ByteString.of("Alice")).score);
+        assertNotEquals(oldScore, zset.get(ByteString.of("Alice")).score);
     }
 
     @Test
     void testRemove() {
-        zset.add("Alice", 10, "ValueA");
-        zset.add("Bob", 20, "ValueB");
+        zset.add(ByteString.of("Alice"), 10, "ValueA");
+        zset.add(ByteString.of("Bob"), 20, "ValueB");
 
-        assertTrue(zset.remove("Alice"));
-        assertNull(zset.get("Alice"));
+        assertTrue(zset.remove(ByteString.of("Alice")));
+        assertNull(zset.get(ByteString.of("Alice")));
 
         // Removing non-existent element should return false
-        assertFalse(zset.remove("NonExistent"));
+        assertFalse(zset.remove(ByteString.of("NonExistent")));
     }
 
     @Test
     void testQueryForward() {
-        zset.add("Alice", 10, "ValueA");
-        zset.add("Bob", 20, "ValueB");
-        zset.add("Charlie", 15, "ValueC");
+        zset.add(ByteString.of("Alice"), 10, "ValueA");
+        zset.add(ByteString.of("Bob"), 20, "ValueB");
+        zset.add(ByteString.of("Charlie"), 15, "ValueC");
 
         // Start at Charlie and move forward by 1 → Bob
-        ZSet.ZNode<String> node = zset.query(15, "Charlie", 1);
+        ZSet.ZNode<String> node = zset.query(15, ByteString.of("Charlie"), 1);
         assertNotNull(node);
-        assertEquals("Bob", node.name);
+        assertEquals("Bob", node.name.toString());
     }
 
     @Test
     void testQueryBackwardUnsupported() {
-        zset.add("Alice", 10, "ValueA");
-        zset.add("Bob", 20, "ValueB");
-        zset.add("Charlie", 15, "ValueC");
+        zset.add(ByteString.of("Alice"), 10, "ValueA");
+        zset.add(ByteString.of("Bob"), 20, "ValueB");
+        zset.add(ByteString.of("Charlie"), 15, "ValueC");
 
         // Backward queries should throw
         assertThrows(UnsupportedOperationException.class,
-                () -> zset.query(15, "Charlie", -1));
+                () -> zset.query(15, ByteString.of("Charlie"), -1));
     }
 
     @Test
     void testQueryEdgeCases() {
-        zset.add("Alice", 10, "ValueA");
+        zset.add(ByteString.of("Alice"), 10, "ValueA");
 
         // query beyond the end → null
-        assertNull(zset.query(10, "Alice", 5));
+        assertNull(zset.query(10, ByteString.of("Alice"), 5));
 
         // query before the start → exception
         assertThrows(UnsupportedOperationException.class,
-                () -> zset.query(10, "Alice", -1));
+                () -> zset.query(10, ByteString.of("Alice"), -1));
     }
 
+    @Test
+    void testRange() {
+        zset.add(ByteString.of("Alice"), 10, "ValueA");
+        zset.add(ByteString.of("Bob"), 20, "ValueB");
+        zset.add(ByteString.of("Charlie"), 15, "ValueC");
+
+        var nodes = zset.range(0, ByteString.EMPTY, 1, 10);
+        assertEquals(2, nodes.size());
+        assertEquals("Charlie", nodes.get(0).name.toString());
+        assertEquals("Bob", nodes.get(1).name.toString());
+
+        assertEquals(1, zset.range(0, ByteString.EMPTY, 0, 1).size());
+        assertTrue(zset.range(21, ByteString.EMPTY, 0, 10).isEmpty());
+    }
+
+    @Test
+    void testAddReturnsReplacedValueAndClear() {
+        assertNull(zset.add(ByteString.of("Alice"), 10, "ValueA"));
+        assertEquals("ValueA", zset.add(ByteString.of("Alice"), 20, "ValueA2"));
+        zset.add(ByteString.of("Bob"), 5, "ValueB");
+
+        zset.clear();
+        assertTrue(zset.isEmpty());
+        assertNull(zset.get(ByteString.of("Alice")));
+        assertNull(zset.query(0, ByteString.EMPTY, 0));
+
+        zset.add(ByteString.of("Carol"), 1, "ValueC"); // usable again after clear
+        assertEquals("Carol", zset.query(0, ByteString.EMPTY, 0).name.toString());
+    }
+
+    @Test
+    void testAddAllMatchesSequentialAdds() {
+        zset.add(ByteString.of("Alice"), 10, "ValueA");
+        zset.add(ByteString.of("Bob"), 20, "ValueB");
+
+        List<ZSet.Entry<String>> batch = new ArrayList<>();
+        for (int i = 999; i >= 0; i--)
+            batch.add(new ZSet.Entry<>(ByteString.of("m" + i), i, "v" + i));
+        batch.add(new ZSet.Entry<>(ByteString.of("Alice"), 30, "NewA")); // moves
+        batch.add(new ZSet.Entry<>(ByteString.of("Bob"), 20, "NewB")); // same score
+        batch.add(new ZSet.Entry<>(ByteString.of("m5"), 2000, "late")); // duplicate, later wins
+
+        List<String> previous = zset.addAll(batch);
+        assertEquals(1003, previous.size());
+        assertNull(previous.get(0));
+        assertEquals("ValueA", previous.get(1000));
+        assertEquals("ValueB", previous.get(1001));
+        assertEquals("v5", previous.get(1002));
+
+        assertEquals(1002, zset.size());
+        assertEquals("late", zset.get(ByteString.of("m5")).value);
+        assertEquals(2000, zset.get(ByteString.of("m5")).score);
+        assertEquals("NewA", zset.get(ByteString.of("Alice")).value);
+
+        List<ZSet.ZNode<String>> all = zset.range(Double.NEGATIVE_INFINITY, ByteString.EMPTY, 0, 2000);
+        assertEquals(1002, all.size(), "Every member is in the skip list exactly once");
+        for (int i = 1; i < all.size(); i++)
+            assertTrue(all.get(i - 1).score <= all.get(i).score, "Range must stay sorted by score");
+        assertEquals("m5", all.get(all.size() - 1).name.toString());
+    }
 }